@@ -0,0 +1,124 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.MoveBuffer;
+import chess.engine.ClassicalEvaluator;
+import chess.engine.Evaluator;
+import chess.engine.MaterialEvaluator;
+import chess.engine.NnueEvaluator;
+import chess.engine.NnueNetwork;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Walks every line to a fixed depth, as perft does, and evaluates each position at the
+ * end. With {@code evaluator=NONE} nothing is evaluated, so the difference from the
+ * other rows is what evaluation costs next to generating and making the moves.
+ * <p>
+ * At depth 3 there are more end positions than the evaluators' caches hold, so cached
+ * terms are recomputed about as often as in a search. The {@code evaluations} counter
+ * gives evaluations per second, next to the walks per second of the benchmark itself.
+ * <p>
+ * {@code NNUE} loads the network in the {@code weights} file, or when none is given uses
+ * random weights with a hidden layer of 256, which run as fast as trained ones.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluationBenchmark {
+
+    public enum Evaluators {
+        NONE(weights -> game -> 0),
+        MATERIAL(weights -> new MaterialEvaluator()),
+        CLASSICAL(weights -> new ClassicalEvaluator()),
+        NNUE(weights -> new NnueEvaluator(network(weights)));
+
+        private final Function<String, Evaluator> factory;
+
+        Evaluators(Function<String, Evaluator> factory) {
+            this.factory = factory;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Evaluations {
+        public long evaluations;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            evaluations = 0;
+        }
+    }
+
+    @Param
+    public Positions position;
+
+    @Param({"3"})
+    public int depth;
+
+    @Param
+    public Evaluators evaluator;
+
+    @Param({""})
+    public String weights;
+
+    private ChessGame game;
+    private Evaluator leafEvaluator;
+    private MoveBuffer[] moves;
+    private long leaves;
+
+    @Setup
+    public void setUp() {
+        game = position.newGame();
+        leafEvaluator = evaluator.factory.apply(weights);
+        moves = new MoveBuffer[depth];
+        for (int ply = 0; ply < depth; ply++) {
+            moves[ply] = new MoveBuffer();
+        }
+    }
+
+    @Benchmark
+    public long walk(Evaluations counter) {
+        leaves = 0;
+        long sum = walk(depth);
+        counter.evaluations += leaves;
+        return sum;
+    }
+
+    private long walk(int remaining) {
+        if (remaining == 0) {
+            leaves++;
+            return leafEvaluator.evaluate(game);
+        }
+        MoveBuffer list = moves[depth - remaining];
+        list.clear();
+        game.legalMoves(game.getTeamTurn(), list);
+        long sum = 0;
+        for (int i = 0; i < list.size(); i++) {
+            game.doMove(list.get(i));
+            sum += walk(remaining - 1);
+            game.undoMove();
+        }
+        return sum;
+    }
+
+    private static NnueNetwork network(String weights) {
+        if (weights.isEmpty()) {
+            return NnueNetwork.random(256, 1);
+        }
+        try {
+            return NnueNetwork.load(Path.of(weights));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
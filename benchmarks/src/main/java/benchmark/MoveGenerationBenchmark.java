@@ -0,0 +1,113 @@
+package benchmark;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the public rules API the server calls while validating moves, one call
+ * per piece of the side to move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+
+    @Param
+    public Positions position;
+
+    private ChessGame game;
+    private List<ChessPosition> pieces;
+    private ChessMove move;
+    private final MoveBuffer buffer = new MoveBuffer();
+
+    @Setup
+    public void setUp() {
+        game = position.newGame();
+        pieces = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = game.getBoard().getPiece(ChessPosition.of(row, col));
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    pieces.add(ChessPosition.of(row, col));
+                }
+            }
+        }
+        for (ChessPosition start : pieces) {
+            if (move == null && !game.validMoves(start).isEmpty()) {
+                move = game.validMoves(start).iterator().next();
+            }
+        }
+    }
+
+    @Benchmark
+    public void pieceMoves(Blackhole blackhole) {
+        ChessBoard board = game.getBoard();
+        for (ChessPosition start : pieces) {
+            blackhole.consume(board.getPiece(start).pieceMoves(board, start));
+        }
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (ChessPosition start : pieces) {
+            blackhole.consume(game.validMoves(start));
+        }
+    }
+
+    @Benchmark
+    public int pieceMovesPacked() {
+        ChessBoard board = game.getBoard();
+        buffer.clear();
+        for (ChessPosition start : pieces) {
+            board.getPiece(start).pieceMoves(board, start.square(), buffer);
+        }
+        return buffer.size();
+    }
+
+    @Benchmark
+    public int validMovesPacked() {
+        buffer.clear();
+        for (ChessPosition start : pieces) {
+            game.validMoves(start.square(), buffer);
+        }
+        return buffer.size();
+    }
+
+    @Benchmark
+    public ChessGame makeMove() throws InvalidMoveException {
+        game.makeMove(move);
+        game.undoMove();
+        return game;
+    }
+
+    @Benchmark
+    public boolean isLegal() {
+        return game.isLegal(move);
+    }
+
+    @Benchmark
+    public ChessGame.GameStatus statusAfterMove() throws InvalidMoveException {
+        game.makeMove(move);
+        ChessGame.GameStatus status = game.getStatus();
+        game.undoMove();
+        return status;
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemate() {
+        return game.isInStalemate(game.getTeamTurn());
+    }
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import chess.engine.MaterialEvaluator;
+import chess.engine.ParallelSearch;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to search to a fixed depth with each number of threads. Dividing
+ * the one-thread time by another row's time gives the speed-up from those threads;
+ * the {@code nodes} counter shows how much extra work the helpers did to get it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParallelSearchBenchmark {
+
+    @Param({"KIWIPETE"})
+    public Positions position;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"7"})
+    public int depth;
+
+    private ParallelSearch search;
+    private TranspositionTable table;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        table = new TranspositionTable(64);
+        search = new ParallelSearch(position.newGame(), MaterialEvaluator::new, table, threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        search.close();
+    }
+
+    @Benchmark
+    public SearchResult search(Nodes counter) {
+        table.clear();
+        SearchResult result = search.search(SearchLimits.depth(depth));
+        counter.nodes += result.nodes();
+        return result;
+    }
+}
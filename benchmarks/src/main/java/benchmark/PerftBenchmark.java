@@ -0,0 +1,84 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.Perft;
+import chess.PerftTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs perft to a fixed depth and reports the leaf nodes counted per second
+ * (the {@code nodes} counter) next to the time per run. With more than one thread, or a
+ * hash size above 0, the count is split over a fork/join pool and, with a hash, shares
+ * subtree counts through a table that is emptied before each run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark {
+
+    @Param
+    public Positions position;
+
+    @Param({"3"})
+    public int depth;
+
+    @Param({"1"})
+    public int threads;
+
+    @Param({"0"})
+    public int hashMegabytes;
+
+    private ChessGame game;
+    private ForkJoinPool pool;
+    private PerftTable table;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        game = position.newGame();
+        if (threads > 1 || hashMegabytes > 0) {
+            pool = new ForkJoinPool(threads);
+        }
+        if (hashMegabytes > 0) {
+            table = new PerftTable(hashMegabytes);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        //Otherwise every run after the first would only look its counts up
+        if (table != null) {
+            table.clear();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long perft(Nodes counter) {
+        long nodes = (pool == null) ? Perft.perft(game, depth) : Perft.perft(game, depth, pool, table);
+        counter.nodes += nodes;
+        return nodes;
+    }
+}
@@ -0,0 +1,31 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.Fen;
+
+/**
+ * Standard positions the benchmarks run on, taken from the usual perft test suites.
+ */
+public enum Positions {
+    START(Fen.START_POSITION),
+    //Busy middlegame with castling, en passant, promotions and pins for both sides
+    KIWIPETE("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"),
+    //Sparse endgame where en passant captures can expose the king along the row
+    EN_PASSANT("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"),
+    //Castling into and through attacks, with promotions available to both sides
+    CASTLING("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1");
+
+    private final String fen;
+
+    Positions(String fen) {
+        this.fen = fen;
+    }
+
+    public String fen() {
+        return fen;
+    }
+
+    public ChessGame newGame() {
+        return Fen.toGame(fen);
+    }
+}
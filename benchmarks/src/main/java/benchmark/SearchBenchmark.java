@@ -0,0 +1,86 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.engine.MaterialEvaluator;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.SearchOptions;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches to a fixed depth and reports the time to reach it next to the positions
+ * visited per second (the {@code nodes} counter). The transposition table is cleared
+ * before each search, so every search starts cold.
+ * <p>
+ * The {@code heuristics} parameter switches the pruning and ordering heuristics all on,
+ * all off, or all on but one, so the time and nodes each one saves can be compared.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param
+    public Positions position;
+
+    @Param({"4"})
+    public int depth;
+
+    @Param({"16"})
+    public int tableMegabytes;
+
+    @Param
+    public Heuristics heuristics;
+
+    private Search search;
+    private TranspositionTable table;
+
+    public enum Heuristics {
+        ALL(SearchOptions.ALL),
+        NONE(SearchOptions.NONE),
+        NO_NULL_MOVE(SearchOptions.ALL.withNullMove(false)),
+        NO_LATE_MOVE_REDUCTIONS(SearchOptions.ALL.withLateMoveReductions(false)),
+        NO_FUTILITY(SearchOptions.ALL.withFutility(false)),
+        NO_KILLERS(SearchOptions.ALL.withKillers(false)),
+        NO_HISTORY(SearchOptions.ALL.withHistory(false));
+
+        private final SearchOptions options;
+
+        Heuristics(SearchOptions options) {
+            this.options = options;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        ChessGame game = position.newGame();
+        table = new TranspositionTable(tableMegabytes);
+        search = new Search(game, new MaterialEvaluator(), table, heuristics.options);
+    }
+
+    @Benchmark
+    public SearchResult search(Nodes counter) {
+        table.clear();
+        SearchResult result = search.search(SearchLimits.depth(depth));
+        counter.nodes += result.nodes();
+        return result;
+    }
+}
@@ -27,7 +27,7 @@ public class BoardRenderer {
             for (int c = 1; c <= 8; c++) {
                 int file = (perspective == ChessGame.TeamColor.WHITE) ? c : (9 - c);
 
-                ChessPosition pos = new ChessPosition(r, file);
+                ChessPosition pos = ChessPosition.of(r, file);
                 ChessPiece piece = board.getPiece(pos);
                 boolean isLight = ((r + file) % 2 == 0);
 
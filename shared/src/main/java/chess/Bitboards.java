@@ -0,0 +1,269 @@
+package chess;
+
+/**
+ * Square numbering and precomputed attack tables for the bitboard side of {@link ChessBoard}.
+ * <p>
+ * Squares are numbered 0 to 63, starting at a1 (row 1, column 1) and counting
+ * across each row towards h8. Bit {@code n} of a bitboard stands for square {@code n}.
+ * <p>
+ * Knight, king and pawn attacks are looked up by square. Rook and bishop attacks use
+ * magic bitboards, whose tables are searched for and filled in when the class loads.
+ */
+final class Bitboards {
+
+    static final int WHITE = 0;
+    static final int BLACK = 1;
+
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final int[][] KNIGHT_OFFSETS = {
+            {2,1}, {2,-1}, {1,-2}, {-1,-2}, {-2,-1}, {-2,1}, {-1,2}, {1,2}
+    };
+    private static final int[][] KING_OFFSETS = {
+            {1,0}, {0,-1}, {-1,0}, {0,1}, {1,1}, {1,-1}, {-1,-1}, {-1,1}
+    };
+    //Rays are indexed by direction; the first four grow towards h8, the last four towards a1
+    private static final int[][] RAY_DIRECTIONS = {
+            {1,0}, {0,1}, {1,1}, {1,-1}, //Up, Right, Up and right, Up and left
+            {-1,0}, {0,-1}, {-1,-1}, {-1,1} //Down, Left, Down and left, Down and right
+    };
+    private static final long[][] RAYS = new long[8][64];
+
+    //Magic bitboards: the blockers that matter to a slider, multiplied by the square's magic
+    //number and shifted, index a table of its attacks precomputed for every blocker pattern
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_TABLE;
+    //Random number seeds for the magic search on each row, fixed so that the same magic
+    //numbers are found, in the same time, every run
+    private static final long[] MAGIC_SEEDS = {728, 10316, 55013, 32803, 12281, 15100, 16645, 255};
+    //Squares strictly between two squares on a shared row, column or diagonal, otherwise empty
+    static final long[][] BETWEEN = new long[64][64];
+    //The whole row, column or diagonal through two squares, otherwise empty
+    static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int row = row(square);
+            int col = column(square);
+            KNIGHT_ATTACKS[square] = offsets(row, col, KNIGHT_OFFSETS);
+            KING_ATTACKS[square] = offsets(row, col, KING_OFFSETS);
+            PAWN_ATTACKS[WHITE][square] = offsets(row, col, new int[][]{{1,-1}, {1,1}});
+            PAWN_ATTACKS[BLACK][square] = offsets(row, col, new int[][]{{-1,-1}, {-1,1}});
+            for (int direction = 0; direction < RAY_DIRECTIONS.length; direction++) {
+                long ray = 0;
+                int r = row + RAY_DIRECTIONS[direction][0];
+                int c = col + RAY_DIRECTIONS[direction][1];
+                while (onBoard(r, c)) {
+                    ray |= bit(square(r, c));
+                    r += RAY_DIRECTIONS[direction][0];
+                    c += RAY_DIRECTIONS[direction][1];
+                }
+                RAYS[direction][square] = ray;
+            }
+        }
+        for (int square = 0; square < 64; square++) {
+            for (int direction = 0; direction < RAY_DIRECTIONS.length; direction++) {
+                int opposite = (direction + 4) % 8;
+                long ray = RAYS[direction][square];
+                while (ray != 0) {
+                    int target = Long.numberOfTrailingZeros(ray);
+                    ray &= ray - 1;
+                    BETWEEN[square][target] = RAYS[direction][square] & RAYS[opposite][target];
+                    LINE[square][target] = RAYS[direction][square] | RAYS[opposite][square] | bit(square);
+                }
+            }
+        }
+        ROOK_TABLE = findMagics(new int[]{0, 1, 4, 5}, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS);
+        BISHOP_TABLE = findMagics(new int[]{2, 3, 6, 7}, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+    }
+
+    private Bitboards() {
+    }
+
+    private static long offsets(int row, int col, int[][] offsets) {
+        long attacks = 0;
+        for (int[] offset : offsets) {
+            int r = row + offset[0];
+            int c = col + offset[1];
+            if (onBoard(r, c)) {
+                attacks |= bit(square(r, c));
+            }
+        }
+        return attacks;
+    }
+
+    static boolean onBoard(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
+    static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    static int square(ChessPosition position) {
+        return position.square();
+    }
+
+    static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    static ChessPosition position(int square) {
+        return ChessPosition.of(row(square), column(square));
+    }
+
+    static long bit(int square) {
+        return 1L << square;
+    }
+
+    static int colorIndex(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? WHITE : BLACK;
+    }
+
+    static int pieceIndex(int color, ChessPiece.PieceType type) {
+        return color * 6 + type.ordinal();
+    }
+
+    static long rookAttacks(int square, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[square]
+                + (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    static long bishopAttacks(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[square]
+                + (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Squares attacked by a piece, ignoring who owns the attacked squares
+     */
+    static long attacks(ChessPiece.PieceType type, int color, int square, long occupied) {
+        return switch (type) {
+            case KING -> KING_ATTACKS[square];
+            case QUEEN -> queenAttacks(square, occupied);
+            case BISHOP -> bishopAttacks(square, occupied);
+            case KNIGHT -> KNIGHT_ATTACKS[square];
+            case ROOK -> rookAttacks(square, occupied);
+            case PAWN -> PAWN_ATTACKS[color][square];
+        };
+    }
+
+    /**
+     * Searches for a magic number for each square that maps every pattern of blockers on
+     * the given rays to a table slot without two patterns with different attacks colliding
+     *
+     * @return the attack table, with each square's slots starting at its offset
+     */
+    private static long[] findMagics(int[] directions, long[] masks, long[] magics, int[] shifts, int[] offsets) {
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            long mask = 0;
+            for (int direction : directions) {
+                //The last square of a ray never blocks anything beyond it
+                long ray = RAYS[direction][square];
+                long edge = (direction < 4) ? Long.highestOneBit(ray) : Long.lowestOneBit(ray);
+                mask |= ray & ~edge;
+            }
+            masks[square] = mask;
+            shifts[square] = 64 - Long.bitCount(mask);
+            offsets[square] = size;
+            size += 1 << Long.bitCount(mask);
+        }
+
+        long[] table = new long[size];
+        long[] blockers = new long[4096];
+        long[] attacks = new long[4096];
+        long[] slots = new long[4096];
+        int[] filled = new int[4096];
+        int attempt = 0;
+        for (int square = 0; square < 64; square++) {
+            long mask = masks[square];
+            int patterns = 0;
+            long subset = 0;
+            do { //Visit every subset of the mask
+                blockers[patterns] = subset;
+                attacks[patterns] = 0;
+                for (int direction : directions) {
+                    attacks[patterns] |= ray(direction, square, subset);
+                }
+                patterns++;
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+
+            long[] random = {MAGIC_SEEDS[row(square) - 1]};
+            long magic;
+            do {
+                //Magic numbers with few bits set tend to work, so combine three random numbers
+                magic = nextRandom(random) & nextRandom(random) & nextRandom(random);
+            } while (Long.bitCount((mask * magic) >>> 56) < 6
+                    || !fillSlots(magic, shifts[square], blockers, attacks, patterns, slots, filled, ++attempt));
+            magics[square] = magic;
+            System.arraycopy(slots, 0, table, offsets[square], patterns);
+        }
+        return table;
+    }
+
+    /**
+     * Tries a magic number, placing each blocker pattern's attacks in the slot it maps to
+     *
+     * @param attempt a number different from every earlier attempt, marking the slots this one fills
+     * @return True if no two patterns with different attacks share a slot
+     */
+    private static boolean fillSlots(long magic, int shift, long[] blockers, long[] attacks, int patterns,
+                                     long[] slots, int[] filled, int attempt) {
+        for (int i = 0; i < patterns; i++) {
+            int slot = (int) ((blockers[i] * magic) >>> shift);
+            if (filled[slot] != attempt) {
+                filled[slot] = attempt;
+                slots[slot] = attacks[i];
+            } else if (slots[slot] != attacks[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Steps an xorshift64* random number generator whose state is held in a one-element array
+     */
+    private static long nextRandom(long[] state) {
+        long x = state[0];
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        state[0] = x;
+        return x * 2685821657736338717L;
+    }
+
+    /**
+     * Walks a ray up to and including its first blocker
+     */
+    private static long ray(int direction, int square, long occupied) {
+        long ray = RAYS[direction][square];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            int blocker = (direction < 4) ? Long.numberOfTrailingZeros(blockers)
+                    : 63 - Long.numberOfLeadingZeros(blockers);
+            ray ^= RAYS[direction][blocker];
+        }
+        return ray;
+    }
+}
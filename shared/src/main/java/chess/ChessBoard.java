@@ -10,26 +10,74 @@ import java.util.*;
  */
 public class ChessBoard implements Cloneable {
 
-    private final ChessPiece[][] board;
-    private List<ChessMove> moveHistory = new ArrayList<>();
+    //Castling rights, as bits of a 4-bit mask
+    static final int WHITE_KINGSIDE = 1;
+    static final int WHITE_QUEENSIDE = 2;
+    static final int BLACK_KINGSIDE = 4;
+    static final int BLACK_QUEENSIDE = 8;
+    static final int ALL_CASTLING = 15;
+    //The phase of the starting position, as counted by phase()
+    public static final int FULL_PHASE = PieceSquareTables.FULL_PHASE;
+    //The rights lost when a piece moves from or to each square
+    private static final int[] CASTLING_LOST = new int[64];
+
+    static {
+        CASTLING_LOST[Bitboards.square(1, 5)] = WHITE_KINGSIDE | WHITE_QUEENSIDE;
+        CASTLING_LOST[Bitboards.square(1, 8)] = WHITE_KINGSIDE;
+        CASTLING_LOST[Bitboards.square(1, 1)] = WHITE_QUEENSIDE;
+        CASTLING_LOST[Bitboards.square(8, 5)] = BLACK_KINGSIDE | BLACK_QUEENSIDE;
+        CASTLING_LOST[Bitboards.square(8, 8)] = BLACK_KINGSIDE;
+        CASTLING_LOST[Bitboards.square(8, 1)] = BLACK_QUEENSIDE;
+    }
+
+    //Indexed by square, as numbered in Bitboards
+    private final ChessPiece[] board = new ChessPiece[64];
+    //One bitboard per color and piece type, indexed by Bitboards.pieceIndex, kept in sync with board
+    private final long[] pieceBitboards = new long[12];
+    private final long[] colorBitboards = new long[2];
+    //Zobrist key of the piece placement, updated alongside the bitboards
+    private long pieceKey;
+    //Zobrist key of the pawns alone, for caching what depends only on pawn structure
+    private long pawnKey;
+    //Sums of PieceSquareTables entries for the pieces on the board, updated alongside the bitboards
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
+    //Square of each color's king, or -1 if it has none
+    private final int[] kingSquares = {-1, -1};
+    //Rights not yet lost by moving a king or rook; a board built by hand starts with all of them
+    private int castlingRights = ALL_CASTLING;
+    //Square a pawn just skipped over with a double move, or -1
+    private int enPassantSquare = -1;
+    //Packed Moves, oldest first
+    private int[] moveHistory = new int[64];
+    private int historySize;
+    //Scratch space for staticExchange, made on first use; each board belongs to one thread at a time
+    private transient int[] exchangeGains;
 
     public ChessBoard() {
-        board = new ChessPiece[8][8];
     }
     public ChessBoard(ChessBoard copy) {
-        board = new ChessPiece[8][8];
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                ChessPiece piece = copy.board[row][col];
-                board[row][col] = (piece == null) ? null : new ChessPiece(piece);
-            }
-        }
+        System.arraycopy(copy.board, 0, board, 0, board.length);
+        System.arraycopy(copy.pieceBitboards, 0, pieceBitboards, 0, pieceBitboards.length);
+        System.arraycopy(copy.colorBitboards, 0, colorBitboards, 0, colorBitboards.length);
+        pieceKey = copy.pieceKey;
+        pawnKey = copy.pawnKey;
+        middlegameScore = copy.middlegameScore;
+        endgameScore = copy.endgameScore;
+        phase = copy.phase;
+        kingSquares[Bitboards.WHITE] = copy.kingSquares[Bitboards.WHITE];
+        kingSquares[Bitboards.BLACK] = copy.kingSquares[Bitboards.BLACK];
+        castlingRights = copy.castlingRights;
+        enPassantSquare = copy.enPassantSquare;
     }
 
 
     public void setBoard(ChessPiece[][] board) {
         for (int row = 0; row <= 7; row++) {
-            System.arraycopy(board[row], 1, this.board[row], 1, 7);
+            for (int col = 0; col <= 7; col++) {
+                setPiece(row * 8 + col, board[row][col]);
+            }
         }
     }
 
@@ -41,22 +89,315 @@ public class ChessBoard implements Cloneable {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        board[position.getRow()-1][position.getColumn()-1] = piece;
+        setPiece(square(position), piece);
+    }
+
+    void setPiece(int square, ChessPiece piece) {
+        ChessPiece replaced = board[square];
+        if (replaced != null) {
+            toggleBitboards(replaced, square);
+        }
+        board[square] = piece;
+        if (piece != null) {
+            toggleBitboards(piece, square);
+        }
+    }
+
+    private void toggleBitboards(ChessPiece piece, int square) {
+        int color = Bitboards.colorIndex(piece.getTeamColor());
+        int index = Bitboards.pieceIndex(color, piece.getPieceType());
+        pieceBitboards[index] ^= Bitboards.bit(square);
+        colorBitboards[color] ^= Bitboards.bit(square);
+        pieceKey ^= Zobrist.PIECES[index][square];
+        int sign = ((pieceBitboards[index] & Bitboards.bit(square)) != 0) ? 1 : -1;
+        middlegameScore += sign * PieceSquareTables.MIDDLEGAME[index][square];
+        endgameScore += sign * PieceSquareTables.ENDGAME[index][square];
+        phase += sign * PieceSquareTables.PHASE[piece.getPieceType().ordinal()];
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            pawnKey ^= Zobrist.PIECES[index][square];
+        } else if (piece.getPieceType() == ChessPiece.PieceType.KING) {
+            long kings = pieceBitboards[index];
+            kingSquares[color] = (kings == 0) ? -1 : Long.numberOfTrailingZeros(kings);
+        }
+    }
+
+    private static int square(ChessPosition position) {
+        if (!Bitboards.onBoard(position.getRow(), position.getColumn())) {
+            throw new IndexOutOfBoundsException("Not on the board: " + position);
+        }
+        return Bitboards.square(position);
+    }
+
+    /**
+     * Gets a 64-bit Zobrist key for the pieces on this board together with the castling
+     * rights and en passant file. The side to move is not part of the board; use
+     * {@link ChessGame#positionKey()} for a key that includes it.
+     *
+     * @return the position key
+     */
+    public long positionKey() {
+        long key = pieceKey ^ Zobrist.CASTLING[castlingRights()];
+        int enPassant = enPassantSquare;
+        //Only count en passant when an enemy pawn is placed to use it
+        if (enPassant >= 0) {
+            int capturer = (Bitboards.row(enPassant) == 3) ? Bitboards.BLACK : Bitboards.WHITE;
+            if ((Bitboards.PAWN_ATTACKS[1 - capturer][enPassant] & pieces(capturer, ChessPiece.PieceType.PAWN)) != 0) {
+                key ^= Zobrist.EN_PASSANT_FILE[Bitboards.column(enPassant) - 1];
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @return Zobrist key of the piece placement alone
+     */
+    long pieceKey() {
+        return pieceKey;
+    }
+
+    /**
+     * @return Zobrist key of the placement of the pawns alone, which stays the same while
+     * other pieces move
+     */
+    public long pawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * @return the material and piece-square score of the pieces on the board for the
+     * middlegame, in centipawns, positive when white stands better
+     */
+    public int middlegameScore() {
+        return middlegameScore;
+    }
+
+    /**
+     * @return the material and piece-square score of the pieces on the board for the
+     * endgame, in centipawns, positive when white stands better
+     */
+    public int endgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * How far the game is from an endgame, counted from the pieces left: 4 for each queen,
+     * 2 for each rook and 1 for each bishop and knight
+     *
+     * @return the phase, from 0 with only kings and pawns left up to {@link #FULL_PHASE}
+     * or beyond with extra pieces from promotions
+     */
+    public int phase() {
+        return phase;
+    }
+
+    /**
+     * @return mask of the castling rights still held, limited to kings and rooks standing on their home squares
+     */
+    int castlingRights() {
+        long whiteRooks = pieces(Bitboards.WHITE, ChessPiece.PieceType.ROOK);
+        long blackRooks = pieces(Bitboards.BLACK, ChessPiece.PieceType.ROOK);
+        int present = 0;
+        if ((pieces(Bitboards.WHITE, ChessPiece.PieceType.KING) & Bitboards.bit(Bitboards.square(1, 5))) != 0) {
+            present |= ((whiteRooks & Bitboards.bit(Bitboards.square(1, 8))) != 0 ? WHITE_KINGSIDE : 0)
+                    | ((whiteRooks & Bitboards.bit(Bitboards.square(1, 1))) != 0 ? WHITE_QUEENSIDE : 0);
+        }
+        if ((pieces(Bitboards.BLACK, ChessPiece.PieceType.KING) & Bitboards.bit(Bitboards.square(8, 5))) != 0) {
+            present |= ((blackRooks & Bitboards.bit(Bitboards.square(8, 8))) != 0 ? BLACK_KINGSIDE : 0)
+                    | ((blackRooks & Bitboards.bit(Bitboards.square(8, 1))) != 0 ? BLACK_QUEENSIDE : 0);
+        }
+        return castlingRights & present;
+    }
+
+    /**
+     * @return the raw castling mask, including rights whose king or rook is missing
+     */
+    int castlingMask() {
+        return castlingRights;
+    }
+
+    void setCastlingMask(int rights) {
+        castlingRights = rights;
+    }
+
+    /**
+     * Drops the castling rights that a move from or to these squares loses
+     */
+    void updateCastlingRights(int from, int to) {
+        castlingRights &= ~(CASTLING_LOST[from] | CASTLING_LOST[to]);
+    }
+
+    /**
+     * @return the square a pawn skipped over with a double move on the last move, or -1
+     */
+    int enPassantSquare() {
+        return enPassantSquare;
+    }
+
+    void setEnPassantSquare(int square) {
+        enPassantSquare = square;
     }
 
+    /**
+     * @return the square of the given color's king, or -1 if it has none
+     */
+    int kingSquare(int color) {
+        return kingSquares[color];
+    }
+
+    /**
+     * @return bitboard of the squares holding pieces of the given color and type
+     */
+    long pieces(int color, ChessPiece.PieceType type) {
+        return pieceBitboards[Bitboards.pieceIndex(color, type)];
+    }
+
+    /**
+     * Gets the squares holding a team's pieces of one type as a bitboard, where bit
+     * {@code n} stands for square {@code n} as numbered in {@link Move}
+     *
+     * @param color the team
+     * @param type  the type of piece
+     * @return the bitboard
+     */
+    public long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieces(Bitboards.colorIndex(color), type);
+    }
+
+    /**
+     * @return bitboard of the squares holding pieces of the given color
+     */
+    long occupancy(int color) {
+        return colorBitboards[color];
+    }
+
+    /**
+     * @return bitboard of the squares holding a team's pieces
+     */
+    public long occupancy(ChessGame.TeamColor color) {
+        return colorBitboards[Bitboards.colorIndex(color)];
+    }
+
+    /**
+     * Finds the squares the piece on a square attacks, with sliding pieces stopped by the
+     * pieces on the board. Squares holding pieces of either team are included.
+     *
+     * @param square the square, numbered as in {@link Move}
+     * @return bitboard of the attacked squares, or 0 if the square is empty
+     */
+    public long attacks(int square) {
+        ChessPiece piece = board[square];
+        if (piece == null) {
+            return 0;
+        }
+        return Bitboards.attacks(piece.getPieceType(), Bitboards.colorIndex(piece.getTeamColor()), square, occupied());
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    long occupied() {
+        return colorBitboards[Bitboards.WHITE] | colorBitboards[Bitboards.BLACK];
+    }
+
+    /**
+     * Determines if any piece of the given team attacks a square, by looking outward
+     * from that square for knights, kings, pawns and sliding pieces that could reach it
+     *
+     * @param position the square to test
+     * @param byColor  the team that might be attacking it
+     * @return True if a piece of that team attacks the square
+     */
+    public boolean isSquareAttacked(ChessPosition position, ChessGame.TeamColor byColor) {
+        return isSquareAttacked(Bitboards.square(position), Bitboards.colorIndex(byColor));
+    }
+
+    boolean isSquareAttacked(int square, int byColor) {
+        long occupied = occupied();
+        return (Bitboards.KNIGHT_ATTACKS[square] & pieces(byColor, ChessPiece.PieceType.KNIGHT)) != 0
+                || (Bitboards.KING_ATTACKS[square] & pieces(byColor, ChessPiece.PieceType.KING)) != 0
+                || (Bitboards.PAWN_ATTACKS[1 - byColor][square] & pieces(byColor, ChessPiece.PieceType.PAWN)) != 0
+                || (Bitboards.rookAttacks(square, occupied) & (pieces(byColor, ChessPiece.PieceType.ROOK)
+                        | pieces(byColor, ChessPiece.PieceType.QUEEN))) != 0
+                || (Bitboards.bishopAttacks(square, occupied) & (pieces(byColor, ChessPiece.PieceType.BISHOP)
+                        | pieces(byColor, ChessPiece.PieceType.QUEEN))) != 0;
+    }
+
+    /**
+     * Finds the pieces of a team that attack a square, with sliding pieces blocked only by
+     * the given occupancy. Passing an occupancy with pieces lifted off shows what would
+     * attack the square once those pieces move.
+     *
+     * @return bitboard of the attacking pieces
+     */
+    long attackers(int square, int byColor, long occupied) {
+        return (Bitboards.KNIGHT_ATTACKS[square] & pieces(byColor, ChessPiece.PieceType.KNIGHT))
+                | (Bitboards.KING_ATTACKS[square] & pieces(byColor, ChessPiece.PieceType.KING))
+                | (Bitboards.PAWN_ATTACKS[1 - byColor][square] & pieces(byColor, ChessPiece.PieceType.PAWN))
+                | (Bitboards.rookAttacks(square, occupied) & (pieces(byColor, ChessPiece.PieceType.ROOK)
+                        | pieces(byColor, ChessPiece.PieceType.QUEEN)))
+                | (Bitboards.bishopAttacks(square, occupied) & (pieces(byColor, ChessPiece.PieceType.BISHOP)
+                        | pieces(byColor, ChessPiece.PieceType.QUEEN)));
+    }
+
+    /**
+     * Works out the material a move wins once every capture back and forth on its end
+     * square has been played out, each team recapturing with its least valuable piece
+     * and stopping when that no longer pays
+     *
+     * @param move a packed {@link Move} of a piece on this board
+     * @return the centipawns the move wins, or a negative number if it loses material
+     */
+    public int staticExchange(int move) {
+        if (exchangeGains == null) {
+            exchangeGains = new int[StaticExchange.MAX_CAPTURES];
+        }
+        return StaticExchange.evaluate(this, move, exchangeGains);
+    }
+
+    /**
+     * Gets the chess piece on a square
+     *
+     * @param square the square, numbered as in {@link Move}
+     * @return Either the piece on the square, or null if it is empty
+     */
+    public ChessPiece getPiece(int square) {
+        return board[square];
+    }
+
+    /**
+     * Records a move that has already been made on this board in its history
+     *
+     * @param move the move
+     */
     public void addMove(ChessMove move) {
-        moveHistory.add(move);
+        addMove(Move.of(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                move.getPromotionPiece(), 0));
+    }
+
+    void addMove(int move) {
+        if (historySize == moveHistory.length) {
+            moveHistory = Arrays.copyOf(moveHistory, historySize * 2);
+        }
+        moveHistory[historySize++] = move;
+    }
+
+    void removeLastMove() {
+        historySize--;
     }
 
     public List<ChessMove> getMoveHistory() {
-        return Collections.unmodifiableList(moveHistory);
+        List<ChessMove> history = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            history.add(Move.toChessMove(moveHistory[i]));
+        }
+        return Collections.unmodifiableList(history);
     }
 
     public ChessMove getLastMove() {
-        if (moveHistory.isEmpty()) {
+        if (historySize == 0) {
             return null;
         }
-        return moveHistory.getLast();
+        return Move.toChessMove(moveHistory[historySize - 1]);
     }
 
     /**
@@ -67,7 +408,7 @@ public class ChessBoard implements Cloneable {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return board[position.getRow()-1][position.getColumn()-1];
+        return board[square(position)];
     }
 
     /**
@@ -90,30 +431,35 @@ public class ChessBoard implements Cloneable {
 
         for (int column = 1; column <= 8; column++) {
             //Add White Pieces
-            addPiece(new ChessPosition(1, column), new ChessPiece(ChessGame.TeamColor.WHITE, backRank[column-1]));
-            addPiece(new ChessPosition(2, column), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(1, column), ChessPiece.of(ChessGame.TeamColor.WHITE, backRank[column-1]));
+            addPiece(ChessPosition.of(2, column), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
             //Add Black Pieces
-            addPiece(new ChessPosition(8, column), new ChessPiece(ChessGame.TeamColor.BLACK, backRank[column-1]));
-            addPiece(new ChessPosition(7, column), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(8, column), ChessPiece.of(ChessGame.TeamColor.BLACK, backRank[column-1]));
+            addPiece(ChessPosition.of(7, column), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
         }
     }
 
     private void clearBoard() {
-        for (ChessPiece[] row : board) {
-            Arrays.fill(row, null);
-        }
+        Arrays.fill(board, null);
+        Arrays.fill(pieceBitboards, 0);
+        Arrays.fill(colorBitboards, 0);
+        pieceKey = 0;
+        pawnKey = 0;
+        middlegameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        kingSquares[Bitboards.WHITE] = -1;
+        kingSquares[Bitboards.BLACK] = -1;
+        castlingRights = ALL_CASTLING;
+        enPassantSquare = -1;
     }
 
     public ChessPosition findKing(ChessGame.TeamColor color) {
-        for (int row = 1; row <= board.length; row++) {
-            for (int col = 1; col <= board.length; col++) {
-                ChessPiece piece = getPiece(new ChessPosition(row,col));
-                if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && piece.getTeamColor() == color) {
-                    return new ChessPosition(row,col);
-                }
-            }
+        int king = kingSquares[Bitboards.colorIndex(color)];
+        if (king < 0) {
+            throw new RuntimeException("The King has gone missing");
         }
-        throw new RuntimeException("The King has gone missing");
+        return Bitboards.position(king);
     }
 
     @Override
@@ -123,7 +469,7 @@ public class ChessBoard implements Cloneable {
             stringRep.append(row);
             stringRep.append(" |");
             for (int column = 1; column <= 8; column++) {
-                ChessPiece piece = getPiece(new ChessPosition(row, column));
+                ChessPiece piece = getPiece(Bitboards.square(row, column));
                 if (piece != null) {
                     stringRep.append(piece);
                 } else {
@@ -142,7 +488,7 @@ public class ChessBoard implements Cloneable {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(board, that.board);
+        return Arrays.equals(pieceBitboards, that.pieceBitboards);
     }
     @Override
     protected ChessBoard clone() {
@@ -150,6 +496,6 @@ public class ChessBoard implements Cloneable {
     }
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return Long.hashCode(pieceKey);
     }
 }
@@ -1,6 +1,7 @@
 package chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Objects;
@@ -12,9 +13,28 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessGame {
+    //Plies without a capture or pawn move after which either team may claim a draw
+    public static final int FIFTY_MOVE_PLIES = 100;
+    //Squares b1, d1 and so on, the color of h1
+    private static final long LIGHT_SQUARES = 0x55AA_55AA_55AA_55AAL;
+
     private ArrayList<ChessMove> gameHistory;
     private ChessBoard board;
     private TeamColor teamTurn;
+    //Keys of the positions before each move played, oldest first, for finding repetitions
+    private long[] positionKeys = new long[16];
+    private int positionCount;
+    //Plies since the last capture or pawn move, which no earlier position can repeat across
+    private int halfmoveClock;
+    private transient MoveUndo[] undoStack = new MoveUndo[16];
+    private transient int undoDepth;
+    //Reused by the checks that only need to know whether any valid move exists
+    private transient MoveBuffer scratchMoves;
+    //Status of each team, valid while the position key still equals statusKey
+    private transient GameStatus[] statuses;
+    private transient long statusKey;
+    //Endgame tables to look positions up in, if any
+    private transient Tablebase tablebase;
 
     public ChessGame() {
         board = new ChessBoard();
@@ -22,6 +42,22 @@ public class ChessGame {
         teamTurn = TeamColor.WHITE;
     }
 
+    /**
+     * Copies the current position of a game, without the moves that led to it, so they
+     * cannot be taken back. The positions they passed through are kept, so repetitions
+     * and the fifty-move rule count them.
+     *
+     * @param copy the game to copy
+     */
+    public ChessGame(ChessGame copy) {
+        board = new ChessBoard(copy.board);
+        teamTurn = copy.teamTurn;
+        positionKeys = Arrays.copyOf(copy.positionKeys, Math.max(16, copy.positionCount));
+        positionCount = copy.positionCount;
+        halfmoveClock = copy.halfmoveClock;
+        tablebase = copy.tablebase;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -54,7 +90,8 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(gameHistory, board, teamTurn);
+        long key = board.pieceKey() ^ ((teamTurn == TeamColor.BLACK) ? Zobrist.BLACK_TO_MOVE : 0);
+        return Long.hashCode(key);
     }
 
     @Override
@@ -66,6 +103,18 @@ public class ChessGame {
                 '}';
     }
 
+    /**
+     * Gets a 64-bit Zobrist key for the current position: the pieces, the side to move,
+     * castling rights and the en passant file. Equal positions always share a key, so it
+     * can be used to cache, index and compare positions without looking at the board.
+     *
+     * @return the position key
+     */
+    public long positionKey() {
+        long key = board.positionKey();
+        return (teamTurn == TeamColor.BLACK) ? key ^ Zobrist.BLACK_TO_MOVE : key;
+    }
+
     /**
      * Enum identifying the 2 possible teams in a chess game
      */
@@ -74,6 +123,17 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Where a team stands in the current position
+     */
+    public enum GameStatus {
+        ONGOING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        DRAW
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -82,24 +142,86 @@ public class ChessGame {
      * startPosition
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
-        ChessPiece piece = board.getPiece(startPosition);
-        if (piece == null) {
+        if (board.getPiece(startPosition) == null) {
             return Collections.emptyList();
         }
-        Collection<ChessMove> allMoves = piece.pieceMoves(board, startPosition);
-        Collection<ChessMove> validMoves = new ArrayList<>();
-        ChessGame simulator = new ChessGame();
-
-        for (ChessMove move : allMoves) {
-            ChessBoard boardCopy = new ChessBoard(board);
-            boardCopy.addPiece(move.getEndPosition(), new ChessPiece(piece));
-            boardCopy.addPiece(move.getStartPosition(), null);
-            simulator.setBoard(boardCopy);
-            if (!simulator.isInCheck(piece.getTeamColor())) {
-                validMoves.add(move);
+        MoveBuffer moves = new MoveBuffer();
+        validMoves(Bitboards.square(startPosition), moves);
+        return moves.toChessMoves(0);
+    }
+
+    /**
+     * Appends the valid moves for the piece on a square to a buffer as packed
+     * {@link Move}s, without creating any objects
+     *
+     * @param square the piece's square, numbered as in {@link Move}
+     * @param moves  the buffer to add to
+     */
+    public void validMoves(int square, MoveBuffer moves) {
+        ChessPiece piece = board.getPiece(square);
+        if (piece == null) {
+            return;
+        }
+        int first = moves.size();
+        piece.pieceMoves(board, square, moves);
+
+        int kept = first;
+        for (int i = first; i < moves.size(); i++) {
+            int move = moves.get(i);
+            doMove(move);
+            boolean leavesKingSafe = !isInCheck(piece.getTeamColor());
+            undoMove();
+            if (leavesKingSafe) {
+                moves.set(kept++, move);
             }
         }
-        return validMoves;
+        moves.truncate(kept);
+    }
+
+    /**
+     * Gets every legal move of a team
+     *
+     * @param teamColor the team to get moves for
+     * @return the team's legal moves
+     */
+    public Collection<ChessMove> legalMoves(TeamColor teamColor) {
+        MoveBuffer moves = new MoveBuffer();
+        legalMoves(teamColor, moves);
+        return moves.toChessMoves(0);
+    }
+
+    /**
+     * Appends every legal move of a team to a buffer as packed {@link Move}s. Checks and
+     * pins are worked out once for the position, so no move is tried on the board.
+     *
+     * @param teamColor the team to get moves for
+     * @param moves     the buffer to add to
+     */
+    public void legalMoves(TeamColor teamColor, MoveBuffer moves) {
+        MoveGenerator.generate(board, Bitboards.colorIndex(teamColor), moves, false);
+    }
+
+    /**
+     * Appends only the legal captures and promotions of a team to a buffer as packed
+     * {@link Move}s, the moves that change the material on the board
+     *
+     * @param teamColor the team to get moves for
+     * @param moves     the buffer to add to
+     */
+    public void legalCaptures(TeamColor teamColor, MoveBuffer moves) {
+        MoveGenerator.generateTactical(board, Bitboards.colorIndex(teamColor), moves);
+    }
+
+    /**
+     * Determines if a team has any legal move, stopping at the first one found
+     *
+     * @param teamColor the team to check
+     * @return True if the team can move
+     */
+    public boolean hasAnyLegalMove(TeamColor teamColor) {
+        MoveBuffer moves = scratchMoves();
+        MoveGenerator.generate(board, Bitboards.colorIndex(teamColor), moves, true);
+        return !moves.isEmpty();
     }
 
     /**
@@ -109,46 +231,180 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
-        ChessPiece piece = board.getPiece(move.getStartPosition());
-        if (piece == null || piece.getTeamColor() != teamTurn) {
+        if (!isLegal(move)) {
             throw new InvalidMoveException();
         }
-        Collection<ChessMove> validMoves = validMoves(move.getStartPosition());
-        if (!validMoves.contains(move)) {
-            throw new InvalidMoveException();
+        doMove(move);
+    }
+
+    /**
+     * Determines if a move is legal for the team whose turn it is. Only the given move is
+     * checked, so this is much cheaper than searching {@link #validMoves} for it.
+     *
+     * @param move the move to check
+     * @return True if the move can be made
+     */
+    public boolean isLegal(ChessMove move) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        if (start == null || end == null || !Bitboards.onBoard(start.getRow(), start.getColumn())
+                || !Bitboards.onBoard(end.getRow(), end.getColumn())) {
+            return false;
         }
-        if (piece.getPieceType() == ChessPiece.PieceType.KING && Math.abs(move.getEndPosition().getColumn() - move.getStartPosition().getColumn()) == 2) {
-            int diff = move.getStartPosition().getColumn() - move.getEndPosition().getColumn();
-            int row = move.getStartPosition().getRow();
-            if (diff == 2) {
-                ChessPiece rook = board.getPiece(new ChessPosition(row, 1));
-                board.addPiece(new ChessPosition(row, move.getEndPosition().getColumn()+1), rook);
-                board.addPiece(new ChessPosition(row, 1), null);
-                rook.hasMoved = true;
-            }
-            if (diff == -2) {
-                ChessPiece rook = board.getPiece(new ChessPosition(row, 8));
-                board.addPiece(new ChessPosition(row, move.getEndPosition().getColumn()-1), rook);
-                board.addPiece(new ChessPosition(row, 8), null);
-                rook.hasMoved = true;
-            }
-        } else if (piece.getPieceType() == ChessPiece.PieceType.PAWN &&
-                board.getPiece(move.getEndPosition()) == null &&
-                move.getStartPosition().getColumn() != move.getEndPosition().getColumn()) {
-            int direction = (piece.getTeamColor() == TeamColor.WHITE) ? 1 : -1;
-            board.addPiece(new ChessPosition(move.getEndPosition().getRow()-direction, move.getEndPosition().getColumn()), null);
-        }
-        board.addPiece(move.getEndPosition(), piece);
-        board.addPiece(move.getStartPosition(), null);
-        if (move.getPromotionPiece() != null) {
-            piece = new ChessPiece(piece.getTeamColor(), move.getPromotionPiece());
-            board.addPiece(move.getEndPosition(), piece);
+        return isLegal(Move.encode(board, move));
+    }
+
+    /**
+     * Determines if a packed move is legal for the team whose turn it is; see {@link #isLegal(ChessMove)}
+     *
+     * @param move the move, flagged as by {@link Move#encode}
+     * @return True if the move can be made
+     */
+    public boolean isLegal(int move) {
+        ChessPiece piece = board.getPiece(Move.from(move));
+        if (piece == null || piece.getTeamColor() != teamTurn || !piece.canMove(board, move)) {
+            return false;
+        }
+        doMove(move);
+        boolean leavesKingSafe = !isInCheck(piece.getTeamColor());
+        undoMove();
+        return leavesKingSafe;
+    }
+
+    /**
+     * Plays a move on the board in place without checking that it is legal, remembering
+     * what it changed so that {@link #undoMove()} can take it back. Handles castling,
+     * en passant and promotion, and passes the turn to the other team.
+     *
+     * @param move a move produced by {@link ChessPiece#pieceMoves}
+     */
+    public void doMove(ChessMove move) {
+        doMove(Move.encode(board, move));
+    }
+
+    /**
+     * Plays a packed move in place; see {@link #doMove(ChessMove)}
+     *
+     * @param move a move produced by {@link ChessPiece#pieceMoves(ChessBoard, int, MoveBuffer)}
+     */
+    public void doMove(int move) {
+        MoveUndo undo = pushUndo();
+        pushPositionKey();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessPiece piece = board.getPiece(from);
+        undo.move = move;
+        undo.moved = piece;
+        undo.turn = teamTurn;
+        undo.captured = board.getPiece(to);
+        undo.capturedAt = to;
+        undo.castlingRights = board.castlingMask();
+        undo.enPassantSquare = board.enPassantSquare();
+
+        if (Move.isCastle(move)) {
+            boolean queenSide = to < from;
+            int rookFrom = queenSide ? from - 4 : from + 3;
+            board.setPiece(queenSide ? to + 1 : to - 1, board.getPiece(rookFrom));
+            board.setPiece(rookFrom, null);
+        } else if (Move.isEnPassant(move)) {
+            //The captured pawn stands beside the start square, on the end square's column
+            undo.capturedAt = (from & ~7) | (to & 7);
+            undo.captured = board.getPiece(undo.capturedAt);
+            board.setPiece(undo.capturedAt, null);
         }
+
+        board.setPiece(from, null);
+        board.setPiece(to, Move.isPromotion(move) ? ChessPiece.of(piece.getTeamColor(), Move.promotion(move)) : piece);
+        board.updateCastlingRights(from, to);
+        board.setEnPassantSquare(Move.isDoublePush(move) ? (from + to) >>> 1 : -1);
         board.addMove(move);
-        piece.hasMoved = true;
+        undo.halfmoveClock = halfmoveClock;
+        halfmoveClock = (undo.captured != null || piece.getPieceType() == ChessPiece.PieceType.PAWN)
+                ? 0 : halfmoveClock + 1;
         teamTurn = (teamTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
     }
 
+    /**
+     * Passes the turn to the other team without moving a piece, which the rules do not
+     * allow but which a search uses to see whether a position is strong even without a
+     * move. Any en passant capture is lost. Positions before the pass are not counted as
+     * repeated by positions after it. Taken back with {@link #undoMove()}.
+     */
+    public void doNullMove() {
+        MoveUndo undo = pushUndo();
+        pushPositionKey();
+        undo.move = Move.NONE;
+        undo.turn = teamTurn;
+        undo.enPassantSquare = board.enPassantSquare();
+        undo.halfmoveClock = halfmoveClock;
+        halfmoveClock = 0;
+        board.setEnPassantSquare(-1);
+        teamTurn = (teamTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+    }
+
+    private MoveUndo pushUndo() {
+        if (undoDepth == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoDepth * 2);
+        }
+        MoveUndo undo = undoStack[undoDepth];
+        if (undo == null) {
+            undo = new MoveUndo();
+            undoStack[undoDepth] = undo;
+        }
+        undoDepth++;
+        return undo;
+    }
+
+    private void pushPositionKey() {
+        if (positionCount == positionKeys.length) {
+            positionKeys = Arrays.copyOf(positionKeys, positionCount * 2);
+        }
+        positionKeys[positionCount++] = positionKey();
+    }
+
+    /**
+     * Takes back the most recent move made with {@link #doMove}, {@link #doNullMove()} or
+     * {@link #makeMove}, restoring captured pieces, castling rights and en passant state.
+     */
+    public void undoMove() {
+        if (undoDepth == 0) {
+            throw new IllegalStateException("No move to undo");
+        }
+        MoveUndo undo = undoStack[--undoDepth];
+        positionCount--;
+        halfmoveClock = undo.halfmoveClock;
+        if (undo.move == Move.NONE) {
+            board.setEnPassantSquare(undo.enPassantSquare);
+            teamTurn = undo.turn;
+            return;
+        }
+        int from = Move.from(undo.move);
+        int to = Move.to(undo.move);
+        board.setPiece(to, null);
+        board.setPiece(from, undo.moved);
+        if (undo.captured != null) {
+            board.setPiece(undo.capturedAt, undo.captured);
+        }
+        if (Move.isCastle(undo.move)) {
+            boolean queenSide = to < from;
+            int rookTo = queenSide ? to + 1 : to - 1;
+            board.setPiece(queenSide ? from - 4 : from + 3, board.getPiece(rookTo));
+            board.setPiece(rookTo, null);
+        }
+        board.setCastlingMask(undo.castlingRights);
+        board.setEnPassantSquare(undo.enPassantSquare);
+        board.removeLastMove();
+        teamTurn = undo.turn;
+    }
+
+    private MoveBuffer scratchMoves() {
+        if (scratchMoves == null) {
+            scratchMoves = new MoveBuffer();
+        }
+        scratchMoves.clear();
+        return scratchMoves;
+    }
+
     /**
      * Determines if the given team is in check
      *
@@ -156,21 +412,9 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = board.findKing(teamColor);
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition attackPosition = new ChessPosition(row, col);
-                ChessPiece attacker = board.getPiece(attackPosition);
-                if (attacker != null && attacker.getTeamColor() != teamColor) {
-                    for (ChessMove move : attacker.pieceMoves(board, attackPosition)) {
-                        if (move.getEndPosition().equals(kingPosition)) {
-                            return true;
-                        }
-                    }
-                }
-            }
-        }
-        return false;
+        int color = Bitboards.colorIndex(teamColor);
+        int king = board.kingSquare(color);
+        return king >= 0 && board.isSquareAttacked(king, 1 - color);
     }
 
     /**
@@ -180,7 +424,7 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        return isInCheck(teamColor) && hasNoMoves(teamColor);
+        return getStatus(teamColor) == GameStatus.CHECKMATE;
     }
 
     /**
@@ -191,22 +435,136 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        return !isInCheck(teamColor) && hasNoMoves(teamColor);
-    }
-
-    private boolean hasNoMoves(TeamColor teamColor) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    if (!validMoves(position).isEmpty()) {
-                        return false;
-                    }
-                }
+        return getStatus(teamColor) == GameStatus.STALEMATE;
+    }
+
+    /**
+     * Gets the status of the team whose turn it is
+     *
+     * @return the status
+     */
+    public GameStatus getStatus() {
+        return getStatus(teamTurn);
+    }
+
+    /**
+     * Gets whether a team is in check, checkmate or stalemate, or the game is drawn by
+     * insufficient material, the fifty-move rule or threefold repetition. Checkmate and
+     * stalemate come before the draws. What depends only on the position is worked out
+     * once per position and kept until the position changes, so asking repeatedly, or
+     * through {@link #isInCheckmate} and {@link #isInStalemate}, costs a lookup and a
+     * look back over the moves since the last capture or pawn move. With a
+     * {@link Tablebase} set, positions it holds a win or loss for are answered from it
+     * without looking for moves.
+     *
+     * @param teamColor the team to get the status of
+     * @return the status
+     */
+    public GameStatus getStatus(TeamColor teamColor) {
+        long key = positionKey();
+        if (statuses == null || statusKey != key) {
+            statuses = (statuses == null) ? new GameStatus[2] : statuses;
+            statuses[0] = null;
+            statuses[1] = null;
+            statusKey = key;
+        }
+        int color = Bitboards.colorIndex(teamColor);
+        if (statuses[color] == null) {
+            boolean check = isInCheck(teamColor);
+            Tablebase.Result known = (tablebase != null && teamColor == teamTurn) ? tablebase.probe(this) : null;
+            if (known != null && known.outcome() != Tablebase.Outcome.DRAW) {
+                //Only a team with no move left is mated now; the tables do not tell stalemate from other draws
+                boolean mated = known.outcome() == Tablebase.Outcome.LOSS && known.plies() == 0;
+                statuses[color] = mated ? GameStatus.CHECKMATE : check ? GameStatus.CHECK : GameStatus.ONGOING;
+            } else if (hasAnyLegalMove(teamColor)) {
+                statuses[color] = check ? GameStatus.CHECK : GameStatus.ONGOING;
+            } else {
+                statuses[color] = check ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+            }
+            if (!isOver(statuses[color]) && hasInsufficientMaterial()) {
+                statuses[color] = GameStatus.DRAW;
             }
         }
-        return true;
+        //Repetitions depend on the moves that led here, so are never kept with the position
+        if (!isOver(statuses[color]) && (halfmoveClock >= FIFTY_MOVE_PLIES || repetitions() >= 2)) {
+            return GameStatus.DRAW;
+        }
+        return statuses[color];
+    }
+
+    private static boolean isOver(GameStatus status) {
+        return status != GameStatus.ONGOING && status != GameStatus.CHECK;
+    }
+
+    /**
+     * Counts the earlier times the current position, with the same team to move, castling
+     * rights and en passant capture, was reached in this game. Only positions since the
+     * last capture or pawn move are looked at, since none before it can come again.
+     *
+     * @return 0 for a new position, 2 or more once the position has occurred three times
+     */
+    public int repetitions() {
+        long key = positionKey();
+        int oldest = Math.max(0, positionCount - halfmoveClock);
+        int count = 0;
+        //Positions with the other team to move cannot match
+        for (int i = positionCount - 2; i >= oldest; i -= 2) {
+            if (positionKeys[i] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return moves by either team since the last capture or pawn move; at {@link #FIFTY_MOVE_PLIES} the game is drawn
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    void setHalfmoveClock(int plies) {
+        halfmoveClock = plies;
+    }
+
+    /**
+     * Determines if neither team has the pieces left to checkmate by any series of moves:
+     * kings alone, or with a single bishop or knight, or with only bishops all standing on
+     * squares of one color.
+     *
+     * @return True if the game is drawn for lack of material
+     */
+    public boolean hasInsufficientMaterial() {
+        long pawnsRooksQueens = 0;
+        long knights = 0;
+        long bishops = 0;
+        for (TeamColor team : TeamColor.values()) {
+            pawnsRooksQueens |= board.pieces(team, ChessPiece.PieceType.PAWN)
+                    | board.pieces(team, ChessPiece.PieceType.ROOK) | board.pieces(team, ChessPiece.PieceType.QUEEN);
+            knights |= board.pieces(team, ChessPiece.PieceType.KNIGHT);
+            bishops |= board.pieces(team, ChessPiece.PieceType.BISHOP);
+        }
+        if (pawnsRooksQueens != 0) {
+            return false;
+        }
+        if (Long.bitCount(knights | bishops) <= 1) {
+            return true;
+        }
+        return knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
+    }
+
+    /**
+     * Sets the endgame tables that {@link #getStatus(TeamColor)} and searches of this game
+     * look positions up in. Copies of the game share them.
+     *
+     * @param tablebase the tables, or null for none
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public Tablebase getTablebase() {
+        return tablebase;
     }
 
     /**
@@ -216,6 +574,9 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = new ChessBoard(board);
+        undoDepth = 0;
+        positionCount = 0;
+        halfmoveClock = 0;
     }
 
     /**
@@ -234,4 +595,19 @@ public class ChessGame {
     public ArrayList<ChessMove> getHistory() {
         return new ArrayList<>(gameHistory);
     }
+
+    /**
+     * What a move changed, kept so the move can be taken back. Records are reused
+     * between moves so that trying moves out does not allocate.
+     */
+    private static final class MoveUndo {
+        int move;
+        ChessPiece moved;
+        ChessPiece captured;
+        int capturedAt;
+        int castlingRights;
+        int enPassantSquare;
+        int halfmoveClock;
+        TeamColor turn;
+    }
 }
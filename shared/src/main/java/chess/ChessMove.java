@@ -10,6 +10,9 @@ import java.util.Objects;
  */
 public class ChessMove {
 
+    //Every move between two squares with each promotion choice, filled in as they are first asked for
+    private static final ChessMove[] INTERNED = new ChessMove[64 * 64 * 7];
+
     private final ChessPosition startPosition;
     private final ChessPosition endPosition;
     private final ChessPiece.PieceType promotionPiece;
@@ -21,6 +24,37 @@ public class ChessMove {
         this.promotionPiece = promotionPiece;
     }
 
+    /**
+     * Gets the shared instance of a move between two squares. Moves handed out by the
+     * move generators all come from here, so comparing them usually ends at the
+     * identity check.
+     *
+     * @param startPosition  where the piece starts
+     * @param endPosition    where the piece ends
+     * @param promotionPiece type to promote to, or null if no promotion
+     * @return the move
+     */
+    public static ChessMove of(ChessPosition startPosition, ChessPosition endPosition,
+                               ChessPiece.PieceType promotionPiece) {
+        if (!Bitboards.onBoard(startPosition.getRow(), startPosition.getColumn())
+                || !Bitboards.onBoard(endPosition.getRow(), endPosition.getColumn())) {
+            return new ChessMove(startPosition, endPosition, promotionPiece);
+        }
+        return of(Bitboards.square(startPosition), Bitboards.square(endPosition), promotionPiece);
+    }
+
+    static ChessMove of(int from, int to, ChessPiece.PieceType promotionPiece) {
+        int promotion = (promotionPiece == null) ? 0 : promotionPiece.ordinal() + 1;
+        int index = (from * 64 + to) * 7 + promotion;
+        ChessMove move = INTERNED[index];
+        if (move == null) {
+            //Racing threads may each build one; either copy is fine since moves never change
+            move = new ChessMove(Bitboards.position(from), Bitboards.position(to), promotionPiece);
+            INTERNED[index] = move;
+        }
+        return move;
+    }
+
     /**
      * @return ChessPosition of starting location
      */
@@ -52,6 +86,9 @@ public class ChessMove {
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
@@ -61,6 +98,7 @@ public class ChessMove {
 
     @Override
     public int hashCode() {
-        return Objects.hash(startPosition, endPosition, promotionPiece);
+        int hash = 31 * Objects.hashCode(startPosition) + Objects.hashCode(endPosition);
+        return 31 * hash + Objects.hashCode(promotionPiece);
     }
 }
@@ -1,6 +1,5 @@
 package chess;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
 
@@ -12,55 +11,38 @@ import java.util.Objects;
  */
 public class ChessPiece {
 
-    private final ChessGame.TeamColor pieceColor;
-    private final PieceType type;
-    public Boolean hasMoved;
-
-    private static final int[][] KNIGHT_DIRECTIONS = {
-            {2,1}, //Up and right
-            {2,-1}, //Up and left
-            {1,-2}, //Left and up
-            {-1,-2}, //Left and down
-            {-2,-1}, //Down and left
-            {-2,1}, //Down and right
-            {-1,2}, //Right and down
-            {1,2} //Right and up
-    };
-    private static final int[][] DIAGONAL_DIRECTIONS = {
-            {1,1}, //Up and right
-            {1,-1}, //Up and left
-            {-1,-1}, //Down and left
-            {-1,1} //Down and right
-    };
-    private static final int[][] STRAIGHT_DIRECTIONS = {
-            {1,0}, //Up
-            {0,-1}, //Left
-            {-1,0}, //Down
-            {0,1} //Right
-    };
-    private static final int[][] ALL_DIRECTIONS;
+    //One shared instance per color and type, indexed by Bitboards.pieceIndex
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
 
     static {
-        ALL_DIRECTIONS = new int[STRAIGHT_DIRECTIONS.length + DIAGONAL_DIRECTIONS.length][2];
-        int i = 0;
-        for (int[] direction : STRAIGHT_DIRECTIONS) {
-            ALL_DIRECTIONS[i++] = direction;
-        }
-        for (int[] direction : DIAGONAL_DIRECTIONS) {
-            ALL_DIRECTIONS[i++] = direction;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[Bitboards.pieceIndex(Bitboards.colorIndex(color), type)] = new ChessPiece(color, type);
+            }
         }
     }
 
+    private final ChessGame.TeamColor pieceColor;
+    private final PieceType type;
+
     public ChessPiece(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
         this.pieceColor = pieceColor;
         this.type = type;
-        this.hasMoved = false;
     }
 
     public ChessPiece(ChessPiece piece) {
         pieceColor = piece.pieceColor;
         type = piece.type;
-        hasMoved = piece.hasMoved;
+    }
+
+    /**
+     * Gets the shared piece of a color and type. Pieces hold no state beyond these two,
+     * so boards can share them instead of creating their own.
+     *
+     * @return the piece
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        return PIECES[Bitboards.pieceIndex(Bitboards.colorIndex(pieceColor), type)];
     }
 
     /**
@@ -97,156 +79,162 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> moves = new ArrayList<>();
-
-        if (type != PieceType.PAWN) { //Logic for all pieces except pawns
-            int[][] directions = switch (type) {
-                case KING,QUEEN -> ALL_DIRECTIONS;
-                case BISHOP -> DIAGONAL_DIRECTIONS;
-                case KNIGHT -> KNIGHT_DIRECTIONS;
-                case ROOK -> STRAIGHT_DIRECTIONS;
-                default -> throw new IllegalStateException("Unexpected value: " + type);
-            };
-            if (type == PieceType.KING && !hasMoved) {
-                checkCastling(board, myPosition, moves);
-            }
-            for (int[] direction : directions) {
-                int row = myPosition.getRow();
-                int col = myPosition.getColumn();
-
-                while (true) {
-                    row += direction[0];
-                    col += direction[1];
-
-                    ChessPosition newPosition = new ChessPosition(row, col);
-
-                    if (!isOnBoard(newPosition)) {
-                        break;
-                    }
+        MoveBuffer moves = new MoveBuffer();
+        pieceMoves(board, Bitboards.square(myPosition), moves);
+        return moves.toChessMoves(0);
+    }
 
-                    if (board.getPiece(newPosition) != null) {
-                        if (board.getPiece(newPosition).getTeamColor() != pieceColor) {
-                            moves.add(new ChessMove(myPosition, newPosition, null));
-                        }
-                        break;
-                    }
+    /**
+     * Appends this piece's moves from a square to a buffer as packed {@link Move}s.
+     * Like {@link #pieceMoves(ChessBoard, ChessPosition)}, moves that leave the king in
+     * danger are included.
+     *
+     * @param board  the board the piece is on
+     * @param square the piece's square, numbered as in {@link Move}
+     * @param moves  the buffer to add to
+     */
+    public void pieceMoves(ChessBoard board, int square, MoveBuffer moves) {
+        int color = Bitboards.colorIndex(pieceColor);
+        long enemies = board.occupancy(1 - color);
 
-                    moves.add(new ChessMove(myPosition, newPosition, null));
-                    if (type == PieceType.KING || type == PieceType.KNIGHT) {
-                        break;
-                    }
-                }
+        if (type != PieceType.PAWN) { //Logic for all pieces except pawns
+            long targets = Bitboards.attacks(type, color, square, board.occupied()) & ~board.occupancy(color);
+            addMoves(square, targets & enemies, Move.CAPTURE, moves);
+            addMoves(square, targets & ~enemies, 0, moves);
+            if (type == PieceType.KING) {
+                castlingMoves(board, square, moves);
             }
         } else { //Logic for Pawns only
-            pawnMoves(board, myPosition, moves);
+            pawnMoves(board, square, moves);
         }
-        return moves;
     }
 
-    private void pawnMoves(ChessBoard board, ChessPosition position, Collection<ChessMove> moves) {
-
-        int direction = (pieceColor == ChessGame.TeamColor.WHITE) ? 1 : -1;
-        int originalRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 2 : 7;
-        int promotionRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 8 : 1;
-
-        int row = position.getRow();
-        int col = position.getColumn();
-
-        ChessPosition oneForward = new ChessPosition(row+direction, col);
-        if (isOnBoard(oneForward) && board.getPiece(oneForward) == null) {
-            addPawnMove(position, oneForward, promotionRow, moves);
-            ChessPosition twoForward = new ChessPosition(row + 2*direction, col);
-            if (row == originalRow && isOnBoard(twoForward) && board.getPiece(twoForward) == null) {
-                moves.add(new ChessMove(position, twoForward, null));
+    /**
+     * Determines if a packed move is one of this piece's moves, checking only that move
+     * rather than generating them all. Like {@link #pieceMoves(ChessBoard, int, MoveBuffer)},
+     * moves that leave the king in danger are included.
+     *
+     * @param board the board the piece is on
+     * @param move  a move starting on the piece's square, flagged as by {@link Move#encode}
+     * @return True if the piece can make the move
+     */
+    boolean canMove(ChessBoard board, int move) {
+        int color = Bitboards.colorIndex(pieceColor);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if ((board.occupancy(color) & Bitboards.bit(to)) != 0) {
+            return false;
+        }
+        if (type != PieceType.PAWN) {
+            if (Move.isPromotion(move)) {
+                return false;
+            }
+            if (Move.isCastle(move)) {
+                return type == PieceType.KING && Math.abs(to - from) == 2 && canCastle(board, from, to < from);
             }
+            return (Bitboards.attacks(type, color, from, board.occupied()) & Bitboards.bit(to)) != 0;
         }
 
-        int[] captureColumns = {col-1, col+1};
-        for (int column : captureColumns) {
-            ChessPosition capturePosition = new ChessPosition(row+direction, column);
-            if (isOnBoard(capturePosition) && board.getPiece(capturePosition) != null && board.getPiece(capturePosition).getTeamColor() != pieceColor) {
-                addPawnMove(position, capturePosition, promotionRow, moves);
-            }
+        //Pawns must promote on the last row, and only to a queen, rook, bishop or knight
+        PieceType promotion = Move.promotion(move);
+        boolean promotes = Bitboards.row(to) == ((pieceColor == ChessGame.TeamColor.WHITE) ? 8 : 1);
+        if (promotes != (promotion != null) || promotion == PieceType.KING || promotion == PieceType.PAWN) {
+            return false;
         }
-        ChessMove lastMove = board.getLastMove();
-        if (lastMove != null) {
-            ChessPiece lastPiece = board.getPiece(lastMove.getEndPosition());
-            if (lastPiece != null && lastPiece.getPieceType() == PieceType.PAWN && lastPiece.getTeamColor() != pieceColor) {
-                int startRow = lastMove.getStartPosition().getRow();
-                int endRow = lastMove.getEndPosition().getRow();
-                if (Math.abs(startRow - endRow) == 2) {
-                    int enPassantRow = (startRow + endRow)/2;
-                    int enPassantCol = lastMove.getEndPosition().getColumn();
-                    ChessPosition enPassantTarget = new ChessPosition(enPassantRow, enPassantCol);
-                    if (Math.abs(position.getColumn() - enPassantCol) == 1 &&
-                            ((pieceColor == ChessGame.TeamColor.WHITE && position.getRow() == 5) ||
-                                    (pieceColor == ChessGame.TeamColor.BLACK && position.getRow() == 4))) {
-                        addPawnMove(position, enPassantTarget, promotionRow, moves);
-                    }
-                }
-            }
+        if (Move.isEnPassant(move)) {
+            int enPassantRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 6 : 3;
+            return to == board.enPassantSquare() && Bitboards.row(to) == enPassantRow
+                    && (Bitboards.PAWN_ATTACKS[color][from] & Bitboards.bit(to)) != 0;
+        }
+        if (Move.isCapture(move)) {
+            return (Bitboards.PAWN_ATTACKS[color][from] & Bitboards.bit(to)) != 0;
         }
+        int forward = (pieceColor == ChessGame.TeamColor.WHITE) ? 8 : -8;
+        long occupied = board.occupied();
+        if (to == from + forward) {
+            return (occupied & Bitboards.bit(to)) == 0;
+        }
+        int originalRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 2 : 7;
+        return to == from + 2 * forward && Bitboards.row(from) == originalRow
+                && (occupied & (Bitboards.bit(from + forward) | Bitboards.bit(to))) == 0;
     }
 
-    private boolean isOnBoard(ChessPosition position) {
-        return position.getRow() >= 1 && position.getRow() <= 8 && position.getColumn() >= 1 && position.getColumn() <= 8;
+    private static void addMoves(int from, long targets, int flags, MoveBuffer moves) {
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(Move.of(from, target, flags));
+        }
     }
 
-    private void addPawnMove(ChessPosition from, ChessPosition to, int promotionRow, Collection<ChessMove> moves) {
-        if (to.getRow() == promotionRow) {
-            moves.add(new ChessMove(from, to, PieceType.QUEEN));
-            moves.add(new ChessMove(from, to, PieceType.ROOK));
-            moves.add(new ChessMove(from, to, PieceType.BISHOP));
-            moves.add(new ChessMove(from, to, PieceType.KNIGHT));
-        } else {
-            moves.add(new ChessMove(from, to, null));
+    private void pawnMoves(ChessBoard board, int square, MoveBuffer moves) {
+        int color = Bitboards.colorIndex(pieceColor);
+        long empty = ~board.occupied();
+
+        long start = Bitboards.bit(square);
+        long oneForward = ((color == Bitboards.WHITE) ? start << 8 : start >>> 8) & empty;
+        long twoForward = ((color == Bitboards.WHITE) ? oneForward << 8 : oneForward >>> 8) & empty;
+        int originalRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 2 : 7;
+        if (Bitboards.row(square) == originalRow) {
+            addMoves(square, twoForward, Move.DOUBLE_PUSH, moves);
+        }
+        long captures = Bitboards.PAWN_ATTACKS[color][square] & board.occupancy(1 - color);
+        addPawnMoves(square, oneForward, 0, moves);
+        addPawnMoves(square, captures, Move.CAPTURE, moves);
+
+        int enPassantTarget = board.enPassantSquare();
+        int enPassantRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 6 : 3;
+        if (enPassantTarget >= 0 && Bitboards.row(enPassantTarget) == enPassantRow) {
+            addMoves(square, Bitboards.PAWN_ATTACKS[color][square] & Bitboards.bit(enPassantTarget),
+                    Move.EN_PASSANT | Move.CAPTURE, moves);
         }
     }
 
-    private void checkCastling(ChessBoard board, ChessPosition position, Collection<ChessMove> moves) {
-        int row = position.getRow();
-        int col = position.getColumn();
-        ChessGame.TeamColor teamColor = board.getPiece(position).getTeamColor();
-        //Check left rook
-        ChessPiece leftRook = board.getPiece(new ChessPosition(row, 1));
-        if (leftRook != null && leftRook.getPieceType() == PieceType.ROOK && !leftRook.hasMoved) {
-            if (board.getPiece(new ChessPosition(row, col-1)) == null &&
-                    board.getPiece(new ChessPosition(row, col-2)) == null &&
-                    board.getPiece(new ChessPosition(row, col-3)) == null) {
-                if (!castlingBlocked(board, position, new int[]{col-1, col-2}, teamColor)) {
-                    moves.add(new ChessMove(position, new ChessPosition(row, col - 2), null));
-                }
+    private void addPawnMoves(int from, long targets, int flags, MoveBuffer moves) {
+        int promotionRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 8 : 1;
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (Bitboards.row(target) == promotionRow) {
+                moves.add(Move.of(from, target, PieceType.QUEEN, flags));
+                moves.add(Move.of(from, target, PieceType.ROOK, flags));
+                moves.add(Move.of(from, target, PieceType.BISHOP, flags));
+                moves.add(Move.of(from, target, PieceType.KNIGHT, flags));
+            } else {
+                moves.add(Move.of(from, target, flags));
             }
         }
+    }
+
+    void castlingMoves(ChessBoard board, int square, MoveBuffer moves) {
+        //Check left rook
+        if (canCastle(board, square, true)) {
+            moves.add(Move.of(square, square - 2, Move.CASTLE));
+        }
         //Check right rook
-        ChessPiece rightRook = board.getPiece(new ChessPosition(row, 8));
-        if (rightRook != null && rightRook.getPieceType() == PieceType.ROOK && !rightRook.hasMoved) {
-            if (board.getPiece(new ChessPosition(row, col+1)) == null &&
-                    board.getPiece(new ChessPosition(row, col+2)) == null) {
-                if (!castlingBlocked(board, position, new int[]{col+1, col+2}, teamColor)) {
-                    moves.add(new ChessMove(position, new ChessPosition(row, col + 2), null));
-                }
-            }
+        if (canCastle(board, square, false)) {
+            moves.add(Move.of(square, square + 2, Move.CASTLE));
         }
     }
 
-    private Boolean castlingBlocked(ChessBoard board, ChessPosition position, int[] columns, ChessGame.TeamColor teamColor) {
-        ChessGame simulatorOne = new ChessGame();
-        simulatorOne.setBoard(board);
-        if (simulatorOne.isInCheck(teamColor)) {
-            return true;
-        }
-        for (int col : columns) {
-            ChessBoard boardCopy = new ChessBoard(board);
-            boardCopy.addPiece(new ChessPosition(position.getRow(), col), new ChessPiece(teamColor, PieceType.KING));
-            boardCopy.addPiece(position, null);
-            ChessGame simulatorTwo = new ChessGame();
-            simulatorTwo.setBoard(boardCopy);
-            if (simulatorTwo.isInCheck(teamColor)) {
-                return true;
-            }
+    private boolean canCastle(ChessBoard board, int square, boolean queenSide) {
+        boolean white = pieceColor == ChessGame.TeamColor.WHITE;
+        //Castling rights only remain while the king and rook are on their home squares
+        int right = white ? (queenSide ? ChessBoard.WHITE_QUEENSIDE : ChessBoard.WHITE_KINGSIDE)
+                : (queenSide ? ChessBoard.BLACK_QUEENSIDE : ChessBoard.BLACK_KINGSIDE);
+        if ((board.castlingRights() & right) == 0 || square != (white ? Bitboards.square(1, 5) : Bitboards.square(8, 5))) {
+            return false;
         }
-        return false;
+        int step = queenSide ? -1 : 1;
+        long between = Bitboards.bit(square + step) | Bitboards.bit(square + 2 * step)
+                | (queenSide ? Bitboards.bit(square - 3) : 0);
+        return (board.occupied() & between) == 0 && !castlingBlocked(board, square, square + step, square + 2 * step);
+    }
+
+    private boolean castlingBlocked(ChessBoard board, int kingSquare, int passedSquare, int endSquare) {
+        int enemy = 1 - Bitboards.colorIndex(pieceColor);
+        return board.isSquareAttacked(kingSquare, enemy) || board.isSquareAttacked(passedSquare, enemy)
+                || board.isSquareAttacked(endSquare, enemy);
     }
     @Override
     public boolean equals(Object o) {
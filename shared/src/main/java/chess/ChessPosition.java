@@ -1,7 +1,5 @@
 package chess;
 
-import java.util.Objects;
-
 /**
  * Represents a single square position on a chess board
  * <p>
@@ -10,6 +8,15 @@ import java.util.Objects;
  */
 public class ChessPosition {
 
+    //The 64 squares of the board, indexed by (row-1)*8 + (col-1)
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < SQUARES.length; square++) {
+            SQUARES[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+        }
+    }
+
     private final int row;
     private final int col;
 
@@ -18,6 +25,21 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Gets the shared instance for a square. Only 64 squares exist, so positions on the
+     * board are never created again; positions off the board are created as needed.
+     *
+     * @param row the row, 1 to 8
+     * @param col the column, 1 to 8
+     * @return the position
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return new ChessPosition(row, col);
+        }
+        return SQUARES[(row - 1) * 8 + (col - 1)];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -34,12 +56,23 @@ public class ChessPosition {
         return col;
     }
 
+    /**
+     * @return the square's number as packed moves and bitboards use it, 0 for the bottom
+     * left square up to 63 for the top right, counting along each row
+     */
+    public int square() {
+        return (row - 1) * 8 + (col - 1);
+    }
+
     @Override
     public String toString() {
         return String.format("(%d, %d)", row, col);
     }
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
@@ -48,6 +81,6 @@ public class ChessPosition {
     }
     @Override
     public int hashCode() {
-        return Objects.hash(row, col);
+        return 31 * row + col;
     }
 }
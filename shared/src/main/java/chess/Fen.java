@@ -0,0 +1,108 @@
+package chess;
+
+/**
+ * Reads positions written in Forsyth-Edwards Notation (FEN), the standard one-line
+ * description of a chess position used by test suites and other chess programs.
+ */
+public final class Fen {
+
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Fen() {
+    }
+
+    /**
+     * Builds a game from a FEN string. The halfmove clock, if present, is kept for the
+     * fifty-move rule; the move number is ignored.
+     *
+     * @param fen the position to load
+     * @return a game set up at that position
+     * @throws IllegalArgumentException if the string is not valid FEN
+     */
+    public static ChessGame toGame(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Expected at least 4 FEN fields: " + fen);
+        }
+        ChessBoard board = new ChessBoard();
+        String[] rows = fields[0].split("/");
+        if (rows.length != 8) {
+            throw new IllegalArgumentException("Expected 8 rows of pieces: " + fen);
+        }
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : rows[i].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                } else {
+                    if (col > 8) {
+                        throw new IllegalArgumentException("Too many squares in row " + row + ": " + fen);
+                    }
+                    board.addPiece(ChessPosition.of(row, col), piece(c));
+                    col++;
+                }
+            }
+            if (col != 9) {
+                throw new IllegalArgumentException("Wrong number of squares in row " + row + ": " + fen);
+            }
+        }
+        board.setCastlingMask(castlingRights(fields[2]));
+        if (!fields[3].equals("-")) {
+            board.setEnPassantSquare(Bitboards.square(square(fields[3])));
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(switch (fields[1]) {
+            case "w" -> ChessGame.TeamColor.WHITE;
+            case "b" -> ChessGame.TeamColor.BLACK;
+            default -> throw new IllegalArgumentException("Unknown side to move: " + fields[1]);
+        });
+        if (fields.length > 4) {
+            try {
+                game.setHalfmoveClock(Integer.parseUnsignedInt(fields[4]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid halfmove clock: " + fen, e);
+            }
+        }
+        return game;
+    }
+
+    private static ChessPiece piece(char c) {
+        ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        ChessPiece.PieceType type = switch (Character.toLowerCase(c)) {
+            case 'k' -> ChessPiece.PieceType.KING;
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'p' -> ChessPiece.PieceType.PAWN;
+            default -> throw new IllegalArgumentException("Unknown piece: " + c);
+        };
+        return ChessPiece.of(color, type);
+    }
+
+    private static int castlingRights(String castling) {
+        int rights = 0;
+        for (char c : castling.toCharArray()) {
+            rights |= switch (c) {
+                case 'K' -> ChessBoard.WHITE_KINGSIDE;
+                case 'Q' -> ChessBoard.WHITE_QUEENSIDE;
+                case 'k' -> ChessBoard.BLACK_KINGSIDE;
+                case 'q' -> ChessBoard.BLACK_QUEENSIDE;
+                case '-' -> 0;
+                default -> throw new IllegalArgumentException("Unknown castling right: " + c);
+            };
+        }
+        return rights;
+    }
+
+    private static ChessPosition square(String name) {
+        if (name.length() != 2 || name.charAt(0) < 'a' || name.charAt(0) > 'h'
+                || (name.charAt(1) != '3' && name.charAt(1) != '6')) {
+            throw new IllegalArgumentException("Invalid en passant square: " + name);
+        }
+        return ChessPosition.of(name.charAt(1) - '0', name.charAt(0) - 'a' + 1);
+    }
+}
@@ -0,0 +1,84 @@
+package chess;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A hash table of one long of data per 64-bit key, shared between threads without locks,
+ * for tables such as {@link PerftTable} and {@code chess.engine.TranspositionTable} that
+ * pack what they remember into the long themselves. Each key has one entry, picked by the
+ * key's low bits, and a store replaces whatever is there.
+ * <p>
+ * Entries are two longs in one flat array: the data, and the key XORed with it. An entry
+ * torn by two threads writing at once no longer XORs back to its key, so readers see it as
+ * a miss rather than as wrong data. Each long is read and written with opaque access,
+ * which keeps it whole where plain array access does not promise to.
+ */
+public final class LocklessTable {
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] slots;
+    private final int indexMask;
+
+    /**
+     * @param megabytes how much memory the table may use, at least 1
+     */
+    public LocklessTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("A table needs at least 1 MB");
+        }
+        //Keep the number of entries a power of two, so a key's low bits pick its entry
+        long entries = Long.highestOneBit(megabytes * (1L << 20) / 16);
+        entries = Math.min(entries, 1L << 29);
+        slots = new long[(int) entries * 2];
+        indexMask = (int) entries - 1;
+    }
+
+    /**
+     * @return how many entries the table holds
+     */
+    public int capacity() {
+        return indexMask + 1;
+    }
+
+    /**
+     * @return the data stored for a key, or 0 if its entry holds another key or none
+     */
+    public long probe(long key) {
+        int index = index(key);
+        long data = (long) SLOTS.getOpaque(slots, index + 1);
+        long check = (long) SLOTS.getOpaque(slots, index);
+        return ((check ^ data) == key) ? data : 0;
+    }
+
+    /**
+     * @return the data in the entry a key would use, whatever key it was stored for
+     */
+    public long occupant(long key) {
+        return (long) SLOTS.getOpaque(slots, index(key) + 1);
+    }
+
+    /**
+     * @return the key the data in the entry a key would use was stored for
+     */
+    public long occupantKey(long key) {
+        int index = index(key);
+        return (long) SLOTS.getOpaque(slots, index) ^ (long) SLOTS.getOpaque(slots, index + 1);
+    }
+
+    public void store(long key, long data) {
+        int index = index(key);
+        SLOTS.setOpaque(slots, index, key ^ data);
+        SLOTS.setOpaque(slots, index + 1, data);
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0);
+    }
+
+    private int index(long key) {
+        return ((int) key & indexMask) << 1;
+    }
+}
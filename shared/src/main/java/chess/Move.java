@@ -0,0 +1,132 @@
+package chess;
+
+/**
+ * Packs a chess move into a single {@code int} so that move lists can live in
+ * primitive arrays instead of collections of {@link ChessMove} objects.
+ * <p>
+ * Bits 0-5 hold the start square and bits 6-11 the end square, with squares numbered
+ * 0 (a1) to 63 (h8) row by row. Bits 12-14 hold the promotion piece's
+ * {@link ChessPiece.PieceType#ordinal()} plus one, or zero for no promotion. The bits
+ * above that flag captures and special moves, so playing a move never has to look
+ * back at the board to work out what kind of move it is.
+ */
+public final class Move {
+
+    /**
+     * Stands for "no move"; no real move starts and ends on a1
+     */
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int DOUBLE_PUSH = 1 << 16;
+    public static final int EN_PASSANT = 1 << 17;
+    public static final int CASTLE = 1 << 18;
+
+    private static final int PROMOTION_SHIFT = 12;
+    //The bits that say which move it is, as opposed to what kind of move it is
+    private static final int IDENTITY_MASK = CAPTURE - 1;
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    private Move() {
+    }
+
+    public static int of(int from, int to, int flags) {
+        return from | (to << 6) | flags;
+    }
+
+    public static int of(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promotionBits = (promotion == null) ? 0 : (promotion.ordinal() + 1) << PROMOTION_SHIFT;
+        return from | (to << 6) | promotionBits | flags;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * @return the piece type a pawn promotes to, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotion = (move >>> PROMOTION_SHIFT) & 7;
+        return (promotion == 0) ? null : PIECE_TYPES[promotion - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return ((move >>> PROMOTION_SHIFT) & 7) != 0;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & CASTLE) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    /**
+     * @return True if both moves have the same start, end and promotion, whatever their flags
+     */
+    public static boolean sameMove(int first, int second) {
+        return (first & IDENTITY_MASK) == (second & IDENTITY_MASK);
+    }
+
+    /**
+     * Packs a move, reading the board it is about to be played on to fill in the flags
+     *
+     * @param board the board before the move is played
+     * @param move  the move to pack
+     * @return the packed move
+     */
+    public static int encode(ChessBoard board, ChessMove move) {
+        int from = Bitboards.square(move.getStartPosition());
+        int to = Bitboards.square(move.getEndPosition());
+        ChessPiece piece = board.getPiece(from);
+        int flags = (board.getPiece(to) != null) ? CAPTURE : 0;
+        if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && Math.abs((to & 7) - (from & 7)) == 2) {
+            flags |= CASTLE;
+        } else if (piece != null && piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            if (Math.abs(to - from) == 16) {
+                flags |= DOUBLE_PUSH;
+            } else if ((to & 7) != (from & 7) && flags == 0) {
+                flags |= EN_PASSANT | CAPTURE;
+            }
+        }
+        return of(from, to, move.getPromotionPiece(), flags);
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return ChessMove.of(from(move), to(move), promotion(move));
+    }
+
+    /**
+     * @return the move in coordinate notation, such as e2e4 or e7e8q
+     */
+    public static String toString(int move) {
+        StringBuilder text = new StringBuilder()
+                .append((char) ('a' + (from(move) & 7))).append(Bitboards.row(from(move)))
+                .append((char) ('a' + (to(move) & 7))).append(Bitboards.row(to(move)));
+        ChessPiece.PieceType promotion = promotion(move);
+        if (promotion != null) {
+            text.append(switch (promotion) {
+                case QUEEN -> 'q';
+                case ROOK -> 'r';
+                case BISHOP -> 'b';
+                case KNIGHT -> 'n';
+                default -> throw new IllegalArgumentException("Cannot promote to " + promotion);
+            });
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,183 @@
+package chess;
+
+/**
+ * Generates every legal move of one team at once. The pieces giving check and the
+ * pieces pinned to the king are found once per position, so unlike
+ * {@link ChessGame#validMoves(int, MoveBuffer)} no move has to be tried on the board
+ * to see whether it leaves the king in danger.
+ */
+final class MoveGenerator {
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Appends the legal moves of a team to a buffer as packed {@link Move}s
+     *
+     * @param board       the board to generate moves on
+     * @param color       the team to move, as numbered in {@link Bitboards}
+     * @param moves       the buffer to add to
+     * @param stopAtFirst whether to stop as soon as any legal move has been added
+     */
+    static void generate(ChessBoard board, int color, MoveBuffer moves, boolean stopAtFirst) {
+        generate(board, color, moves, stopAtFirst, false);
+    }
+
+    /**
+     * Appends only the legal captures and promotions of a team, the moves that change the
+     * material on the board
+     */
+    static void generateTactical(ChessBoard board, int color, MoveBuffer moves) {
+        generate(board, color, moves, false, true);
+    }
+
+    private static void generate(ChessBoard board, int color, MoveBuffer moves, boolean stopAtFirst,
+                                 boolean tacticalOnly) {
+        int first = moves.size();
+        int enemy = 1 - color;
+        long own = board.occupancy(color);
+        long enemies = board.occupancy(enemy);
+        long occupied = own | enemies;
+        int king = board.kingSquare(color);
+        if (king < 0) {
+            //Without a king nothing can be left in check, so every move a piece has is legal
+            while (own != 0) {
+                int square = Long.numberOfTrailingZeros(own);
+                own &= own - 1;
+                board.getPiece(square).pieceMoves(board, square, moves);
+                if (stopAtFirst && moves.size() > first) {
+                    return;
+                }
+            }
+            if (tacticalOnly) {
+                int kept = first;
+                for (int i = first; i < moves.size(); i++) {
+                    if (Move.isCapture(moves.get(i)) || Move.isPromotion(moves.get(i))) {
+                        moves.set(kept++, moves.get(i));
+                    }
+                }
+                moves.truncate(kept);
+            }
+            return;
+        }
+
+        //The king may go anywhere not attacked once it has stepped off its square
+        long kingBit = Bitboards.bit(king);
+        long targets = Bitboards.KING_ATTACKS[king] & (tacticalOnly ? enemies : ~own);
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (board.attackers(target, enemy, occupied ^ kingBit) == 0) {
+                moves.add(Move.of(king, target, ((enemies & Bitboards.bit(target)) != 0) ? Move.CAPTURE : 0));
+            }
+        }
+        long checkers = board.attackers(king, enemy, occupied);
+        if (checkers == 0 && !tacticalOnly) {
+            board.getPiece(king).castlingMoves(board, king, moves);
+        }
+        if ((stopAtFirst && moves.size() > first) || Long.bitCount(checkers) > 1) {
+            //Only the king can escape a double check
+            return;
+        }
+
+        //In check, other pieces must capture the checker or block its line to the king
+        long allowed = ~own;
+        if (checkers != 0) {
+            allowed = checkers | Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+        }
+
+        //A piece alone between the king and an enemy slider may only move along that line
+        long pinned = 0;
+        long snipers = (Bitboards.rookAttacks(king, enemies) & (board.pieces(enemy, ChessPiece.PieceType.ROOK)
+                | board.pieces(enemy, ChessPiece.PieceType.QUEEN)))
+                | (Bitboards.bishopAttacks(king, enemies) & (board.pieces(enemy, ChessPiece.PieceType.BISHOP)
+                | board.pieces(enemy, ChessPiece.PieceType.QUEEN)));
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.BETWEEN[king][sniper] & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
+        }
+
+        long pieces = own & ~kingBit;
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            long limit = allowed;
+            if ((pinned & Bitboards.bit(square)) != 0) {
+                limit &= Bitboards.LINE[king][square];
+            }
+            ChessPiece.PieceType type = board.getPiece(square).getPieceType();
+            if (type == ChessPiece.PieceType.PAWN) {
+                pawnMoves(board, color, square, limit, king, tacticalOnly, moves);
+            } else {
+                long pieceTargets = Bitboards.attacks(type, color, square, occupied) & limit
+                        & (tacticalOnly ? enemies : ~0L);
+                addMoves(square, pieceTargets & enemies, Move.CAPTURE, moves);
+                addMoves(square, pieceTargets & ~enemies, 0, moves);
+            }
+            if (stopAtFirst && moves.size() > first) {
+                return;
+            }
+        }
+    }
+
+    private static void pawnMoves(ChessBoard board, int color, int square, long limit, int king, boolean tacticalOnly,
+                                  MoveBuffer moves) {
+        long occupied = board.occupied();
+        int forward = (color == Bitboards.WHITE) ? 8 : -8;
+        int originalRow = (color == Bitboards.WHITE) ? 2 : 7;
+        int promotionRow = (color == Bitboards.WHITE) ? 8 : 1;
+
+        int oneForward = square + forward;
+        if (oneForward >= 0 && oneForward < 64 && (occupied & Bitboards.bit(oneForward)) == 0
+                && (!tacticalOnly || Bitboards.row(oneForward) == promotionRow)) {
+            addPawnMoves(color, square, Bitboards.bit(oneForward) & limit, 0, moves);
+            int twoForward = oneForward + forward;
+            if (Bitboards.row(square) == originalRow && (occupied & Bitboards.bit(twoForward)) == 0) {
+                addMoves(square, Bitboards.bit(twoForward) & limit, Move.DOUBLE_PUSH, moves);
+            }
+        }
+        long attacks = Bitboards.PAWN_ATTACKS[color][square];
+        addPawnMoves(color, square, attacks & board.occupancy(1 - color) & limit, Move.CAPTURE, moves);
+
+        int enPassantTarget = board.enPassantSquare();
+        int enPassantRow = (color == Bitboards.WHITE) ? 6 : 3;
+        if (enPassantTarget >= 0 && Bitboards.row(enPassantTarget) == enPassantRow
+                && (attacks & Bitboards.bit(enPassantTarget)) != 0) {
+            //Two pawns leave the row at once, which pins and check masks cannot see, so look
+            //at the king's attackers on the board as it will be after the capture
+            int captured = (square & ~7) | (enPassantTarget & 7);
+            long after = occupied ^ Bitboards.bit(square) ^ Bitboards.bit(enPassantTarget) ^ Bitboards.bit(captured);
+            if ((board.attackers(king, 1 - color, after) & ~Bitboards.bit(captured)) == 0) {
+                moves.add(Move.of(square, enPassantTarget, Move.EN_PASSANT | Move.CAPTURE));
+            }
+        }
+    }
+
+    private static void addPawnMoves(int color, int from, long targets, int flags, MoveBuffer moves) {
+        int promotionRow = (color == Bitboards.WHITE) ? 8 : 1;
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (Bitboards.row(target) == promotionRow) {
+                moves.add(Move.of(from, target, ChessPiece.PieceType.QUEEN, flags));
+                moves.add(Move.of(from, target, ChessPiece.PieceType.ROOK, flags));
+                moves.add(Move.of(from, target, ChessPiece.PieceType.BISHOP, flags));
+                moves.add(Move.of(from, target, ChessPiece.PieceType.KNIGHT, flags));
+            } else {
+                moves.add(Move.of(from, target, flags));
+            }
+        }
+    }
+
+    private static void addMoves(int from, long targets, int flags, MoveBuffer moves) {
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(Move.of(from, target, flags));
+        }
+    }
+}
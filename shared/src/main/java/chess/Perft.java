@@ -0,0 +1,242 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Performance test (perft): counts the leaf nodes of the legal move tree below a
+ * position. Published counts for standard positions make this both a correctness
+ * check and a speed measure for the rules engine.
+ * <p>
+ * Deep counts can be split between the threads of a fork/join pool, each counting
+ * subtrees on its own copy of the game, and can share a {@link PerftTable} so that
+ * subtrees reached by more than one order of moves are counted once.
+ */
+public final class Perft {
+
+    //Subtrees shallower than this are counted by one thread, as forking them costs more than it saves
+    private static final int SPLIT_DEPTH = 4;
+
+    private Perft() {
+    }
+
+    /**
+     * Prints the divide counts and the total for a position, in the same layout other
+     * engines use for {@code go perft}, so the output can be compared line by line.
+     * With {@code --threads} the count is split between that many threads, and with
+     * {@code --hash} subtree counts are shared through a table of that many megabytes.
+     * <p>
+     * Usage: {@code Perft [--threads n] [--hash megabytes] <depth> [fen]}
+     */
+    public static void main(String[] args) {
+        int threads = 1;
+        int hashMegabytes = 0;
+        int first = 0;
+        while (first + 1 < args.length && args[first].startsWith("--")) {
+            switch (args[first]) {
+                case "--threads" -> threads = Integer.parseInt(args[first + 1]);
+                case "--hash" -> hashMegabytes = Integer.parseInt(args[first + 1]);
+                default -> {
+                    System.err.println("Unknown option: " + args[first]);
+                    return;
+                }
+            }
+            first += 2;
+        }
+        if (args.length <= first) {
+            System.err.println("Usage: Perft [--threads n] [--hash megabytes] <depth> [fen]");
+            return;
+        }
+        int depth = Integer.parseInt(args[first]);
+        String fen = (args.length > first + 1) ? String.join(" ", Arrays.copyOfRange(args, first + 1, args.length))
+                : Fen.START_POSITION;
+        Map<String, Long> counts;
+        if (threads == 1 && hashMegabytes == 0) {
+            counts = divide(Fen.toGame(fen), depth);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                counts = divide(Fen.toGame(fen), depth, pool, (hashMegabytes > 0) ? new PerftTable(hashMegabytes) : null);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        long total = 0;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+            total += entry.getValue();
+        }
+        System.out.println();
+        System.out.println("Nodes searched: " + total);
+    }
+
+    /**
+     * Counts the positions reachable in exactly {@code depth} moves. The game is left
+     * as it was when the count finishes.
+     *
+     * @param game  the position to start from; moves are tried on it in place
+     * @param depth how many moves deep to count
+     * @return the number of leaf nodes
+     */
+    public static long perft(ChessGame game, int depth) {
+        return perft(game, depth, buffers(depth), null);
+    }
+
+    /**
+     * Counts as {@link #perft(ChessGame, int)} does, with the work split between the
+     * threads of a pool
+     *
+     * @param game  the position to start from; it is left as it was
+     * @param depth how many moves deep to count
+     * @param pool  the threads to count on
+     * @param table where threads share counts of subtrees, or null to count every subtree
+     * @return the number of leaf nodes
+     */
+    public static long perft(ChessGame game, int depth, ForkJoinPool pool, PerftTable table) {
+        if (depth == 0) {
+            return 1;
+        }
+        return divide(game, depth, pool, table).values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static long perft(ChessGame game, int depth, MoveBuffer[] buffers, PerftTable table) {
+        if (depth == 0) {
+            return 1;
+        }
+        long key = 0;
+        if (table != null && depth > 1) {
+            key = game.positionKey();
+            long known = table.probe(key, depth);
+            if (known >= 0) {
+                return known;
+            }
+        }
+        MoveBuffer moves = buffers[depth];
+        generate(game, moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.doMove(moves.get(i));
+            nodes += perft(game, depth - 1, buffers, table);
+            game.undoMove();
+        }
+        if (table != null) {
+            table.store(key, depth, nodes);
+        }
+        return nodes;
+    }
+
+    /**
+     * Splits a perft count by root move. Comparing each line against a trusted engine
+     * shows which branch a miscount is in; repeating from that move narrows it down.
+     *
+     * @param game  the position to start from; moves are tried on it in place
+     * @param depth how many moves deep to count, at least 1
+     * @return leaf counts keyed by root move in coordinate notation such as e2e4 or e7e8q
+     */
+    public static Map<String, Long> divide(ChessGame game, int depth) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        MoveBuffer[] buffers = buffers(depth);
+        MoveBuffer moves = buffers[depth];
+        generate(game, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            game.doMove(moves.get(i));
+            counts.put(Move.toString(moves.get(i)), perft(game, depth - 1, buffers, null));
+            game.undoMove();
+        }
+        return counts;
+    }
+
+    /**
+     * Splits a perft count by root move as {@link #divide(ChessGame, int)} does, with each
+     * root move's subtree, and deep subtrees below it, counted as separate tasks in a pool
+     *
+     * @param game  the position to start from; it is left as it was
+     * @param depth how many moves deep to count, at least 1
+     * @param pool  the threads to count on
+     * @param table where threads share counts of subtrees, or null to count every subtree
+     * @return leaf counts keyed by root move in coordinate notation such as e2e4 or e7e8q
+     */
+    public static Map<String, Long> divide(ChessGame game, int depth, ForkJoinPool pool, PerftTable table) {
+        MoveBuffer moves = new MoveBuffer();
+        generate(game, moves);
+        List<ForkJoinTask<Long>> subtrees = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            game.doMove(moves.get(i));
+            subtrees.add(pool.submit(new Subtree(new ChessGame(game), depth - 1, table)));
+            game.undoMove();
+        }
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < moves.size(); i++) {
+            counts.put(Move.toString(moves.get(i)), subtrees.get(i).join());
+        }
+        return counts;
+    }
+
+    //One buffer per remaining depth, so counting a tree creates no objects per node
+    private static MoveBuffer[] buffers(int depth) {
+        MoveBuffer[] buffers = new MoveBuffer[depth + 1];
+        for (int i = 0; i <= depth; i++) {
+            buffers[i] = new MoveBuffer();
+        }
+        return buffers;
+    }
+
+    private static void generate(ChessGame game, MoveBuffer moves) {
+        moves.clear();
+        game.legalMoves(game.getTeamTurn(), moves);
+    }
+
+    /**
+     * Counts one subtree on its own copy of the game, forking a task for each move while
+     * the subtree is deep enough to be worth sharing out
+     */
+    private static final class Subtree extends RecursiveTask<Long> {
+
+        private final ChessGame game;
+        private final int depth;
+        private final PerftTable table;
+
+        Subtree(ChessGame game, int depth, PerftTable table) {
+            this.game = game;
+            this.depth = depth;
+            this.table = table;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth < SPLIT_DEPTH) {
+                return perft(game, depth, buffers(depth), table);
+            }
+            long key = game.positionKey();
+            long known = (table != null) ? table.probe(key, depth) : -1;
+            if (known >= 0) {
+                return known;
+            }
+            MoveBuffer moves = new MoveBuffer();
+            generate(game, moves);
+            List<Subtree> children = new ArrayList<>(moves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                game.doMove(moves.get(i));
+                children.add(new Subtree(new ChessGame(game), depth - 1, table));
+                game.undoMove();
+            }
+            long nodes = 0;
+            for (Subtree child : invokeAll(children)) {
+                nodes += child.join();
+            }
+            if (table != null) {
+                table.store(key, depth, nodes);
+            }
+            return nodes;
+        }
+    }
+}
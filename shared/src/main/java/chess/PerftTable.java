@@ -0,0 +1,54 @@
+package chess;
+
+/**
+ * Remembers perft counts of subtrees, keyed by {@link ChessGame#positionKey()} and the
+ * depth counted, so a position reached again by another order of moves is counted once.
+ * Each entry of its {@link LocklessTable} is the count with the depth in its top byte.
+ */
+public final class PerftTable {
+
+    private static final int DEPTH_SHIFT = 56;
+    private static final long COUNT_MASK = (1L << DEPTH_SHIFT) - 1;
+
+    private final LocklessTable entries;
+
+    /**
+     * @param megabytes how much memory the table may use, at least 1
+     */
+    public PerftTable(int megabytes) {
+        entries = new LocklessTable(megabytes);
+    }
+
+    /**
+     * Looks up the count of a subtree
+     *
+     * @param key   the position key at the subtree's root
+     * @param depth how many moves deep it was counted
+     * @return the count, or -1 if it is not in the table
+     */
+    public long probe(long key, int depth) {
+        //Counts are at least 1, so no stored entry is 0
+        long entry = entries.probe(key);
+        return (entry != 0 && (entry >>> DEPTH_SHIFT) == depth) ? entry & COUNT_MASK : -1;
+    }
+
+    /**
+     * Stores the count of a subtree. The entry already in its place is kept if it is for
+     * another position counted deeper, since it stands for more work.
+     *
+     * @param key   the position key at the subtree's root
+     * @param depth how many moves deep it was counted, at most 255
+     * @param count the count, below 2<sup>56</sup>
+     */
+    public void store(long key, int depth, long count) {
+        long old = entries.occupant(key);
+        if (old != 0 && entries.occupantKey(key) != key && (old >>> DEPTH_SHIFT) > depth) {
+            return;
+        }
+        entries.store(key, ((long) depth << DEPTH_SHIFT) | (count & COUNT_MASK));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
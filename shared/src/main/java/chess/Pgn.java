@@ -0,0 +1,154 @@
+package chess;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads games from Portable Game Notation (PGN), the standard text format for collections
+ * of chess games. Only each game's tags and main line are kept: comments, variations and
+ * numeric annotations are skipped.
+ */
+public final class Pgn {
+
+    private static final List<String> RESULTS = List.of("1-0", "0-1", "1/2-1/2", "*");
+
+    /**
+     * One game from a PGN file
+     *
+     * @param tags   the tag pairs, such as {@code Event} or {@code White}, in file order
+     * @param moves  the main line, in SAN
+     * @param result {@code 1-0}, {@code 0-1}, {@code 1/2-1/2} or {@code *} if unknown
+     */
+    public record Game(Map<String, String> tags, List<String> moves, String result) {
+    }
+
+    private Pgn() {
+    }
+
+    /**
+     * Reads every game from a PGN source, handing each to a consumer as soon as it has been
+     * read, so files too large to hold in memory can be read
+     *
+     * @param reader the PGN text
+     * @param onGame called with each game in turn
+     * @throws IOException if the text cannot be read
+     */
+    public static void read(Reader reader, Consumer<Game> onGame) throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        List<String> moves = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        //Nesting depth of variations in parentheses, which are skipped
+        int variationDepth = 0;
+        int c = reader.read();
+        while (c != -1) {
+            if (c == '{') {
+                //Comments run to the closing brace
+                do {
+                    c = reader.read();
+                } while (c != -1 && c != '}');
+            } else if (c == ';') {
+                //Comments run to the end of the line
+                do {
+                    c = reader.read();
+                } while (c != -1 && c != '\n');
+            } else if (c == '(') {
+                variationDepth++;
+            } else if (c == ')') {
+                variationDepth = Math.max(0, variationDepth - 1);
+            } else if (c == '[') {
+                //Tags only come before a game's moves, so a variation left open has ended with its game
+                variationDepth = 0;
+                if (!moves.isEmpty()) {
+                    //A tag after moves starts the next game, even if this one had no result
+                    onGame.accept(new Game(tagsInOrder(tags), List.copyOf(moves), "*"));
+                    tags.clear();
+                    moves.clear();
+                }
+                StringBuilder tag = new StringBuilder();
+                c = reader.read();
+                while (c != -1 && c != ']') {
+                    tag.append((char) c);
+                    c = reader.read();
+                }
+                addTag(tag.toString(), tags);
+            } else if (!Character.isWhitespace(c)) {
+                token.setLength(0);
+                while (c != -1 && !Character.isWhitespace(c) && "{;()[".indexOf(c) < 0) {
+                    token.append((char) c);
+                    c = reader.read();
+                }
+                if (variationDepth == 0) {
+                    String text = token.toString();
+                    if (RESULTS.contains(text)) {
+                        onGame.accept(new Game(tagsInOrder(tags), List.copyOf(moves), text));
+                        tags.clear();
+                        moves.clear();
+                    } else {
+                        addMove(text, moves);
+                    }
+                }
+                continue;
+            }
+            c = reader.read();
+        }
+        if (!moves.isEmpty()) {
+            onGame.accept(new Game(tagsInOrder(tags), List.copyOf(moves), "*"));
+        }
+    }
+
+    /**
+     * Plays a game's moves from the position in its {@code FEN} tag, or the starting
+     * position if it has none
+     *
+     * @param game   the game to replay
+     * @param onMove called before each move with the position and the move as a packed {@link Move}
+     * @return the position after the last move
+     * @throws IllegalArgumentException if a move is not legal SAN for its position
+     */
+    public static ChessGame replay(Game game, MoveListener onMove) {
+        ChessGame position = Fen.toGame(game.tags().getOrDefault("FEN", Fen.START_POSITION));
+        for (String san : game.moves()) {
+            int move = San.parse(position, san);
+            onMove.beforeMove(position, move);
+            position.doMove(move);
+        }
+        return position;
+    }
+
+    /**
+     * Sees each position of a game being replayed
+     */
+    @FunctionalInterface
+    public interface MoveListener {
+        void beforeMove(ChessGame position, int move);
+    }
+
+    private static void addTag(String tag, Map<String, String> tags) {
+        int quote = tag.indexOf('"');
+        int lastQuote = tag.lastIndexOf('"');
+        if (quote < 0 || lastQuote <= quote) {
+            return;
+        }
+        String name = tag.substring(0, quote).trim();
+        String value = tag.substring(quote + 1, lastQuote).replace("\\\"", "\"").replace("\\\\", "\\");
+        tags.put(name, value);
+    }
+
+    private static void addMove(String text, List<String> moves) {
+        //Move numbers such as 12. or 12... may be written against the move
+        String move = text.replaceFirst("^\\d+\\.+", "");
+        if (!move.isEmpty() && !move.startsWith("$") && !move.matches("\\d+")) {
+            moves.add(move);
+        }
+    }
+
+    private static Map<String, String> tagsInOrder(Map<String, String> tags) {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(tags));
+    }
+}
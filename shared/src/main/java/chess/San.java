@@ -0,0 +1,111 @@
+package chess;
+
+/**
+ * Reads moves written in Standard Algebraic Notation (SAN), the notation of game scores
+ * and PGN files, such as {@code Nf3}, {@code exd5}, {@code O-O} or {@code e8=Q+}.
+ */
+public final class San {
+
+    private San() {
+    }
+
+    /**
+     * Finds the legal move a SAN string names in a position. Check and mate marks and
+     * annotations such as {@code !?} are ignored.
+     *
+     * @param game the position the move is played in
+     * @param san  the move
+     * @return the move as a packed {@link Move}
+     * @throws IllegalArgumentException if the string is not SAN, or names no legal move
+     *                                  or more than one
+     */
+    public static int parse(ChessGame game, String san) {
+        String text = san.replaceAll("[+#!?]+$", "");
+        MoveBuffer moves = new MoveBuffer();
+        game.legalMoves(game.getTeamTurn(), moves);
+        ChessBoard board = game.getBoard();
+
+        if (text.equals("O-O") || text.equals("0-0") || text.equals("O-O-O") || text.equals("0-0-0")) {
+            boolean queenSide = text.length() == 5;
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if (Move.isCastle(move) && (Move.to(move) < Move.from(move)) == queenSide) {
+                    return move;
+                }
+            }
+            throw new IllegalArgumentException("Castling is not legal here: " + san);
+        }
+
+        ChessPiece.PieceType promotion = null;
+        int equals = text.indexOf('=');
+        if (equals >= 0) {
+            if (equals != text.length() - 2) {
+                throw new IllegalArgumentException("Invalid promotion: " + san);
+            }
+            promotion = pieceType(text.charAt(equals + 1), san);
+            text = text.substring(0, equals);
+        }
+
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        if (!text.isEmpty() && Character.isUpperCase(text.charAt(0))) {
+            type = pieceType(text.charAt(0), san);
+            text = text.substring(1);
+        }
+        text = text.replace("x", "");
+        if (text.length() < 2 || text.length() > 4) {
+            throw new IllegalArgumentException("Invalid move: " + san);
+        }
+        int to = square(text.substring(text.length() - 2), san);
+        //What is left names the start square's column, row or both
+        int fromColumn = -1;
+        int fromRow = -1;
+        for (char c : text.substring(0, text.length() - 2).toCharArray()) {
+            if (c >= 'a' && c <= 'h') {
+                fromColumn = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRow = c - '1';
+            } else {
+                throw new IllegalArgumentException("Invalid move: " + san);
+            }
+        }
+
+        int found = Move.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int from = Move.from(move);
+            if (Move.to(move) != to || board.getPiece(from).getPieceType() != type
+                    || Move.promotion(move) != promotion
+                    || (fromColumn >= 0 && (from & 7) != fromColumn) || (fromRow >= 0 && (from >>> 3) != fromRow)) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                throw new IllegalArgumentException("Ambiguous move: " + san);
+            }
+            found = move;
+        }
+        if (found == Move.NONE) {
+            throw new IllegalArgumentException("Move is not legal here: " + san);
+        }
+        return found;
+    }
+
+    private static ChessPiece.PieceType pieceType(char letter, String san) {
+        return switch (letter) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            default -> throw new IllegalArgumentException("Unknown piece " + letter + " in move: " + san);
+        };
+    }
+
+    private static int square(String name, String san) {
+        char column = name.charAt(0);
+        char row = name.charAt(1);
+        if (column < 'a' || column > 'h' || row < '1' || row > '8') {
+            throw new IllegalArgumentException("Invalid square " + name + " in move: " + san);
+        }
+        return (row - '1') * 8 + (column - 'a');
+    }
+}
@@ -0,0 +1,87 @@
+package chess;
+
+/**
+ * Static exchange evaluation (SEE): the material a capture wins or loses once both teams
+ * have recaptured on its square for as long as that pays, each always recapturing with
+ * its least valuable piece. Attackers are found with {@link ChessBoard#attackers}, the
+ * same test used for check, so sliders lined up behind a piece join in as it is traded off.
+ */
+final class StaticExchange {
+
+    //Centipawns, indexed by PieceType ordinal
+    private static final int[] VALUES = {20000, 900, 330, 320, 500, 100};
+    //Least valuable first
+    private static final ChessPiece.PieceType[] ATTACKER_ORDER = {ChessPiece.PieceType.PAWN,
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.KING};
+    //Captures followed on one square, more than the 32 pieces on a board can make
+    static final int MAX_CAPTURES = 32;
+
+    private StaticExchange() {
+    }
+
+    /**
+     * @param board the board before the move
+     * @param move  a packed move of the piece on its start square
+     * @param gains scratch space of at least {@link #MAX_CAPTURES} entries, so the hot path does not allocate
+     * @return the material the move wins, in centipawns, or a negative number if it loses material
+     */
+    static int evaluate(ChessBoard board, int move, int[] gains) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessPiece mover = board.getPiece(from);
+        int color = Bitboards.colorIndex(mover.getTeamColor());
+        long occupied = board.occupied() ^ Bitboards.bit(from);
+
+        if (Move.isEnPassant(move)) {
+            gains[0] = VALUES[ChessPiece.PieceType.PAWN.ordinal()];
+            occupied ^= Bitboards.bit((from & ~7) | (to & 7));
+        } else {
+            ChessPiece captured = board.getPiece(to);
+            gains[0] = (captured == null) ? 0 : VALUES[captured.getPieceType().ordinal()];
+        }
+        int onSquare = VALUES[mover.getPieceType().ordinal()];
+        if (Move.isPromotion(move)) {
+            onSquare = VALUES[Move.promotion(move).ordinal()];
+            gains[0] += onSquare - VALUES[ChessPiece.PieceType.PAWN.ordinal()];
+        }
+
+        int depth = 0;
+        int side = 1 - color;
+        while (true) {
+            long attackers = board.attackers(to, side, occupied) & occupied;
+            if (attackers == 0) {
+                break;
+            }
+            ChessPiece.PieceType attacker = null;
+            long attackerBit = 0;
+            for (ChessPiece.PieceType type : ATTACKER_ORDER) {
+                long ofType = attackers & board.pieces(side, type);
+                if (ofType != 0) {
+                    attacker = type;
+                    attackerBit = Long.lowestOneBit(ofType);
+                    break;
+                }
+            }
+            //A king may only recapture if nothing can take it back
+            if (attacker == ChessPiece.PieceType.KING
+                    && (board.attackers(to, 1 - side, occupied ^ attackerBit) & occupied) != 0) {
+                break;
+            }
+            depth++;
+            gains[depth] = onSquare - gains[depth - 1];
+            if (Math.max(-gains[depth - 1], gains[depth]) < 0 || depth == MAX_CAPTURES - 1) {
+                //Neither this capture nor stopping before it changes the outcome
+                break;
+            }
+            onSquare = VALUES[attacker.ordinal()];
+            occupied ^= attackerBit;
+            side = 1 - side;
+        }
+        while (depth > 0) {
+            gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+            depth--;
+        }
+        return gains[0];
+    }
+}
@@ -0,0 +1,212 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Endgame tablebases: the result with best play, and the number of moves to mate, of
+ * every position of a king and a queen, a rook or a pawn against a lone king. They are
+ * built by {@link TablebaseGenerator} and read straight from memory-mapped files.
+ * <p>
+ * Each table is stored from the side of the team with the extra piece, with that team's
+ * king on files a to d; other positions are turned around to match. A table holds one
+ * entry for each team to move and square of the three pieces, in that order, packed at
+ * the fewest bits that fit the largest entry. An entry of 0 is a draw, and any other is
+ * one more than the number of moves by either team to mate, which is odd when the team
+ * to move mates and even when it is mated.
+ * <p>
+ * Files are little-endian: the magic number {@code TBAS} as an int, the format version
+ * 1, the piece's {@link ChessPiece.PieceType} ordinal, the bits per entry, then the
+ * packed entries, each starting at the lowest unused bit.
+ */
+public final class Tablebase implements AutoCloseable {
+
+    //Pieces the stronger team may have besides its king, one table each
+    static final ChessPiece.PieceType[] PIECES = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.PAWN};
+    //Team to move, stronger king on files a to d, weaker king, piece
+    static final int ENTRIES = 2 * 32 * 64 * 64;
+    //Entries before this have the stronger team to move
+    static final int HALF = ENTRIES / 2;
+    static final int MAGIC = 0x5341_4254;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    private static final Result DRAWN = new Result(Outcome.DRAW, 0);
+
+    /**
+     * How a game ends with best play, for the team to move
+     */
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    /**
+     * @param outcome how the game ends with best play, for the team to move
+     * @param plies   moves by either team until mate, 0 for a draw or if the team to move is mated
+     */
+    public record Result(Outcome outcome, int plies) {
+    }
+
+    private final List<FileChannel> channels;
+    //Indexed like PIECES, null where the directory had no table
+    private final ByteBuffer[] tables;
+    private final int[] bits;
+
+    private Tablebase(List<FileChannel> channels, ByteBuffer[] tables, int[] bits) {
+        this.channels = channels;
+        this.tables = tables;
+        this.bits = bits;
+    }
+
+    /**
+     * Maps every table file in a directory into memory for reading
+     *
+     * @throws IOException if a table cannot be read or is not a table file, or the
+     *                     directory holds none
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        List<FileChannel> channels = new ArrayList<>();
+        ByteBuffer[] tables = new ByteBuffer[PIECES.length];
+        int[] bits = new int[PIECES.length];
+        try {
+            for (int i = 0; i < PIECES.length; i++) {
+                Path path = directory.resolve(fileName(PIECES[i]));
+                if (!Files.exists(path)) {
+                    continue;
+                }
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                channels.add(channel);
+                MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                table.order(ByteOrder.LITTLE_ENDIAN);
+                if (table.limit() < HEADER_BYTES || table.getInt(0) != MAGIC || table.getInt(4) != VERSION
+                        || table.getInt(8) != PIECES[i].ordinal()) {
+                    throw new IOException("Not a version " + VERSION + " tablebase file: " + path);
+                }
+                bits[i] = table.getInt(12);
+                if (bits[i] < 1 || bits[i] > 16 || table.limit() != dataBytes(bits[i]) + HEADER_BYTES) {
+                    throw new IOException("Tablebase file has the wrong size: " + path);
+                }
+                tables[i] = table;
+            }
+            if (channels.isEmpty()) {
+                throw new IOException("No tablebase files in " + directory);
+            }
+            return new Tablebase(channels, tables, bits);
+        } catch (IOException | RuntimeException e) {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up a position. Only the two kings alone, or with one more piece, can be
+     * found; a bishop or a knight can never mate, so those positions are draws.
+     *
+     * @param game the position
+     * @return the result with best play, or null if the position is not in the tables
+     */
+    public Result probe(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        long white = board.occupancy(ChessGame.TeamColor.WHITE);
+        long black = board.occupancy(ChessGame.TeamColor.BLACK);
+        int pieces = Long.bitCount(white | black);
+        if (pieces > 3 || board.castlingRights() != 0
+                || Long.bitCount(board.pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING)) != 1
+                || Long.bitCount(board.pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING)) != 1) {
+            return null;
+        }
+        if (pieces == 2) {
+            return DRAWN;
+        }
+        ChessGame.TeamColor strong = (Long.bitCount(white) == 2) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        ChessGame.TeamColor weak = (strong == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK
+                : ChessGame.TeamColor.WHITE;
+        long strongKing = board.pieces(strong, ChessPiece.PieceType.KING);
+        int pieceSquare = Long.numberOfTrailingZeros(board.occupancy(strong) & ~strongKing);
+        ChessPiece.PieceType type = board.getPiece(pieceSquare).getPieceType();
+        int table = table(type);
+        if (table < 0) {
+            return (type == ChessPiece.PieceType.BISHOP || type == ChessPiece.PieceType.KNIGHT) ? DRAWN : null;
+        }
+        if (tables[table] == null) {
+            return null;
+        }
+        //Black's positions are turned upside down, so its pawn moves up the board as white's would
+        int flip = (strong == ChessGame.TeamColor.WHITE) ? 0 : 56;
+        int toMove = (game.getTeamTurn() == strong) ? 0 : 1;
+        int entry = read(tables[table], bits[table], index(toMove, Long.numberOfTrailingZeros(strongKing) ^ flip,
+                Long.numberOfTrailingZeros(board.pieces(weak, ChessPiece.PieceType.KING)) ^ flip, pieceSquare ^ flip));
+        if (entry == 0) {
+            return DRAWN;
+        }
+        int plies = entry - 1;
+        return new Result(((plies & 1) == 1) ? Outcome.WIN : Outcome.LOSS, plies);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+    }
+
+    static String fileName(ChessPiece.PieceType type) {
+        return "K" + switch (type) {
+            case QUEEN -> "Q";
+            case ROOK -> "R";
+            case PAWN -> "P";
+            default -> throw new IllegalArgumentException("No table for " + type);
+        } + "K.tb";
+    }
+
+    static int table(ChessPiece.PieceType type) {
+        for (int i = 0; i < PIECES.length; i++) {
+            if (PIECES[i] == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Numbers a position within a table, mirroring it left to right if the stronger king
+     * is on files e to h
+     *
+     * @param toMove 0 if the stronger team is to move, 1 if the lone king is
+     */
+    static int index(int toMove, int strongKing, int weakKing, int piece) {
+        if ((strongKing & 7) >= 4) {
+            strongKing ^= 7;
+            weakKing ^= 7;
+            piece ^= 7;
+        }
+        return ((toMove * 32 + (strongKing >>> 3) * 4 + (strongKing & 7)) * 64 + weakKing) * 64 + piece;
+    }
+
+    /**
+     * @return bytes of packed entries, with two spare so any entry can be read three bytes at a time
+     */
+    static int dataBytes(int bits) {
+        return (int) (((long) ENTRIES * bits + 7) / 8) + 2;
+    }
+
+    private static int read(ByteBuffer table, int bits, int index) {
+        long bit = (long) index * bits;
+        int at = HEADER_BYTES + (int) (bit >>> 3);
+        int window = (table.get(at) & 0xFF) | (table.get(at + 1) & 0xFF) << 8 | (table.get(at + 2) & 0xFF) << 16;
+        return (window >>> (bit & 7)) & ((1 << bits) - 1);
+    }
+}
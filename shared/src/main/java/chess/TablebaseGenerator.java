@@ -0,0 +1,266 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+/**
+ * Builds the {@link Tablebase} files by retrograde analysis: positions where the lone king
+ * is mated are found first, then those that mate in one move, then those that are mated
+ * in two, and so on back from the mates until a round finds no new position. Positions
+ * left over are draws. A position mates in n moves if any move reaches one mated in n - 1,
+ * and is mated in n if every move reaches one that mates in at most n - 1.
+ * <p>
+ * Each round splits the table between all processors. A round only writes entries at
+ * the distance it is looking for, which is never the distance it reads, so the threads
+ * need no locking. A king and pawn table needs the queen and rook tables for
+ * promotions, so those are built first.
+ * <p>
+ * Usage: {@code TablebaseGenerator directory}
+ */
+public final class TablebaseGenerator {
+
+    private TablebaseGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: TablebaseGenerator directory");
+            return;
+        }
+        long start = System.nanoTime();
+        generate(Path.of(args[0]));
+        System.out.println("Wrote " + Tablebase.PIECES.length + " tables in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Builds every table and writes it to a directory, which is created if needed
+     */
+    public static void generate(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        byte[][] tables = new byte[Tablebase.PIECES.length][];
+        for (int i = 0; i < Tablebase.PIECES.length; i++) {
+            tables[i] = solve(Tablebase.PIECES[i], tables);
+            write(directory.resolve(Tablebase.fileName(Tablebase.PIECES[i])), Tablebase.PIECES[i], tables[i]);
+        }
+    }
+
+    /**
+     * Works out every entry of one table
+     *
+     * @param solved the tables already built, indexed like {@link Tablebase#PIECES}, for promotions
+     * @return one entry per byte, read as unsigned
+     */
+    static byte[] solve(ChessPiece.PieceType type, byte[][] solved) {
+        Table table = new Table(type, solved);
+        IntStream.range(Tablebase.HALF, Tablebase.ENTRIES).parallel().forEach(table::markMated);
+        //Promotions can reach positions of the other tables mated at any distance up to theirs
+        int reachable = 0;
+        for (byte[] other : solved) {
+            if (other != null) {
+                for (byte entry : other) {
+                    reachable = Math.max(reachable, entry & 0xFF);
+                }
+            }
+        }
+        long previous = 1;
+        for (int plies = 1; ; plies++) {
+            int distance = plies;
+            long found = ((plies & 1) == 1)
+                    ? IntStream.range(0, Tablebase.HALF).parallel().filter(i -> table.mates(i, distance)).count()
+                    : IntStream.range(Tablebase.HALF, Tablebase.ENTRIES).parallel()
+                    .filter(i -> table.mated(i, distance)).count();
+            if (found == 0 && previous == 0 && plies > reachable) {
+                return table.entries;
+            }
+            previous = found;
+        }
+    }
+
+    private static void write(Path path, ChessPiece.PieceType type, byte[] entries) throws IOException {
+        int largest = 1;
+        for (byte entry : entries) {
+            largest = Math.max(largest, entry & 0xFF);
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(largest);
+        ByteBuffer buffer = ByteBuffer.allocate(Tablebase.HEADER_BYTES + Tablebase.dataBytes(bits))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION).putInt(type.ordinal()).putInt(bits);
+        byte[] packed = buffer.array();
+        for (int i = 0; i < entries.length; i++) {
+            long bit = (long) i * bits;
+            int value = (entries[i] & 0xFF) << (bit & 7);
+            int at = Tablebase.HEADER_BYTES + (int) (bit >>> 3);
+            packed[at] |= (byte) value;
+            packed[at + 1] |= (byte) (value >>> 8);
+            packed[at + 2] |= (byte) (value >>> 16);
+        }
+        Files.write(path, packed);
+    }
+
+    /**
+     * One table being built, with the moves of its positions worked out straight from the
+     * squares of the three pieces, seen with the stronger team as white
+     */
+    private static final class Table {
+
+        private final ChessPiece.PieceType type;
+        private final byte[] entries = new byte[Tablebase.ENTRIES];
+        private final byte[] queens;
+        private final byte[] rooks;
+
+        Table(ChessPiece.PieceType type, byte[][] solved) {
+            this.type = type;
+            this.queens = solved[Tablebase.table(ChessPiece.PieceType.QUEEN)];
+            this.rooks = solved[Tablebase.table(ChessPiece.PieceType.ROOK)];
+        }
+
+        /**
+         * Marks a position as mated if the lone king is to move, in check and has no move
+         */
+        void markMated(int index) {
+            int strongKing = strongKing(index);
+            int weakKing = weakKing(index);
+            int piece = piece(index);
+            long occupied = Bitboards.bit(strongKing) | Bitboards.bit(weakKing);
+            if (valid(index) && (pieceAttacks(piece, occupied) & Bitboards.bit(weakKing)) != 0
+                    && kingMoves(strongKing, weakKing, piece) == 0) {
+                entries[index] = 1;
+            }
+        }
+
+        /**
+         * Marks a position with the stronger team to move as mating in the given number of
+         * moves if a move reaches a position mated in one fewer
+         *
+         * @return True if the position was marked
+         */
+        boolean mates(int index, int plies) {
+            if (entries[index] != 0 || !valid(index)) {
+                return false;
+            }
+            int strongKing = strongKing(index);
+            int weakKing = weakKing(index);
+            int piece = piece(index);
+            long occupied = Bitboards.bit(strongKing) | Bitboards.bit(weakKing) | Bitboards.bit(piece);
+            boolean found = false;
+            long kingTargets = Bitboards.KING_ATTACKS[strongKing] & ~Bitboards.KING_ATTACKS[weakKing] & ~occupied;
+            while (kingTargets != 0 && !found) {
+                int to = Long.numberOfTrailingZeros(kingTargets);
+                kingTargets &= kingTargets - 1;
+                found = entry(entries, 1, to, weakKing, piece) == plies;
+            }
+            if (type == ChessPiece.PieceType.PAWN) {
+                int to = piece + 8;
+                if (!found && (occupied & Bitboards.bit(to)) == 0) {
+                    if (to >= 56) {
+                        //A bishop or knight cannot mate, so only these promotions can win
+                        found = entry(queens, 1, strongKing, weakKing, to) == plies
+                                || entry(rooks, 1, strongKing, weakKing, to) == plies;
+                    } else {
+                        found = entry(entries, 1, strongKing, weakKing, to) == plies;
+                        if (!found && piece < 16 && (occupied & Bitboards.bit(to + 8)) == 0) {
+                            found = entry(entries, 1, strongKing, weakKing, to + 8) == plies;
+                        }
+                    }
+                }
+            } else {
+                long targets = pieceAttacks(piece, occupied) & ~occupied;
+                while (targets != 0 && !found) {
+                    int to = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+                    found = entry(entries, 1, strongKing, weakKing, to) == plies;
+                }
+            }
+            if (found) {
+                entries[index] = (byte) (plies + 1);
+            }
+            return found;
+        }
+
+        /**
+         * Marks a position with the lone king to move as mated in the given number of moves
+         * if it has a move and every move reaches a position that mates in fewer
+         *
+         * @return True if the position was marked
+         */
+        boolean mated(int index, int plies) {
+            if (entries[index] != 0 || !valid(index)) {
+                return false;
+            }
+            int strongKing = strongKing(index);
+            int weakKing = weakKing(index);
+            int piece = piece(index);
+            long targets = kingMoves(strongKing, weakKing, piece);
+            if (targets == 0 || (targets & Bitboards.bit(piece)) != 0) {
+                //Stalemated, or able to take the last piece
+                return false;
+            }
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                int entry = entry(entries, 0, strongKing, to, piece);
+                //Entries that mate are even, and at most plies when mating in fewer moves
+                if (entry == 0 || (entry & 1) == 1 || entry > plies) {
+                    return false;
+                }
+            }
+            entries[index] = (byte) (plies + 1);
+            return true;
+        }
+
+        /**
+         * @return the squares the lone king can move to, including taking the piece if it is not guarded
+         */
+        private long kingMoves(int strongKing, int weakKing, int piece) {
+            //The lone king does not block the piece's attacks on squares behind it
+            long attacked = Bitboards.KING_ATTACKS[strongKing] | pieceAttacks(piece, Bitboards.bit(strongKing));
+            return Bitboards.KING_ATTACKS[weakKing] & ~attacked;
+        }
+
+        private long pieceAttacks(int piece, long occupied) {
+            return Bitboards.attacks(type, Bitboards.WHITE, piece, occupied);
+        }
+
+        /**
+         * @return False for the entries that stand for no real position: pieces on the same
+         * square, kings side by side, a pawn on the first or last row, or the lone king in
+         * check with the stronger team to move
+         */
+        private boolean valid(int index) {
+            int strongKing = strongKing(index);
+            int weakKing = weakKing(index);
+            int piece = piece(index);
+            if (strongKing == weakKing || piece == strongKing || piece == weakKing
+                    || (Bitboards.KING_ATTACKS[strongKing] & Bitboards.bit(weakKing)) != 0) {
+                return false;
+            }
+            if (type == ChessPiece.PieceType.PAWN && (piece < 8 || piece >= 56)) {
+                return false;
+            }
+            return index >= Tablebase.HALF || (pieceAttacks(piece, Bitboards.bit(strongKing) | Bitboards.bit(weakKing))
+                    & Bitboards.bit(weakKing)) == 0;
+        }
+
+        private static int entry(byte[] table, int toMove, int strongKing, int weakKing, int piece) {
+            return table[Tablebase.index(toMove, strongKing, weakKing, piece)] & 0xFF;
+        }
+
+        private static int strongKing(int index) {
+            int king = (index >>> 12) & 31;
+            return (king >>> 2) * 8 + (king & 3);
+        }
+
+        private static int weakKing(int index) {
+            return (index >>> 6) & 63;
+        }
+
+        private static int piece(int index) {
+            return index & 63;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of positions.
+ * <p>
+ * The keys come from a fixed seed so a position hashes to the same value in every
+ * run, which lets keys be stored and compared across processes.
+ */
+final class Zobrist {
+
+    //Indexed by Bitboards.pieceIndex, then square
+    static final long[][] PIECES = new long[12][64];
+    //Indexed by the castling rights mask of ChessBoard
+    static final long[] CASTLING = new long[16];
+    //Indexed by the column of the en passant target square, minus one
+    static final long[] EN_PASSANT_FILE = new long[8];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C4E55L);
+        for (long[] piece : PIECES) {
+            for (int square = 0; square < 64; square++) {
+                piece[square] = random.nextLong();
+            }
+        }
+        for (int rights = 1; rights < CASTLING.length; rights++) {
+            CASTLING[rights] = random.nextLong();
+        }
+        for (int file = 0; file < EN_PASSANT_FILE.length; file++) {
+            EN_PASSANT_FILE[file] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+}
@@ -0,0 +1,165 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * Scores a position by material, piece placement, pawn structure and mobility, each
+ * scored once for the middlegame and once for the endgame and blended by how many
+ * pieces are left.
+ * <p>
+ * Material and placement are summed by the board as pieces move, so they cost nothing
+ * here. Pawn structure and mobility are worked out from the bitboards and cached, pawn
+ * structure by the pawns' own key, since pawns move far less often than other pieces.
+ */
+public final class ClassicalEvaluator implements Evaluator {
+
+    //Entries in each cache, which must be powers of two
+    private static final int PAWN_CACHE_SIZE = 1 << 14;
+    private static final int MOBILITY_CACHE_SIZE = 1 << 16;
+
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDDLEGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+    //Indexed by how many rows a passed pawn has advanced from its team's back row
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 60, 100, 150, 0};
+
+    //Indexed by PieceType ordinal: squares a piece usually reaches, and what each square more is worth
+    private static final int[] MOBILITY_BASE = {0, 14, 7, 4, 7, 0};
+    private static final int[] MOBILITY_MIDDLEGAME = {0, 1, 5, 4, 2, 0};
+    private static final int[] MOBILITY_ENDGAME = {0, 2, 5, 4, 4, 0};
+    private static final ChessPiece.PieceType[] MOBILE_TYPES = {ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK};
+
+    private static final long FILE_A = 0x0101_0101_0101_0101L;
+    //Squares on the files beside each file
+    private static final long[] ADJACENT_FILES = new long[8];
+    //Squares a pawn of each team must find free of enemy pawns to be passed, indexed by color then square
+    private static final long[][] PASSED_SPANS = new long[2][64];
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = ((file > 0) ? FILE_A << (file - 1) : 0) | ((file < 7) ? FILE_A << (file + 1) : 0);
+        }
+        for (int square = 0; square < 64; square++) {
+            int file = square & 7;
+            long span = (FILE_A << file) | ADJACENT_FILES[file];
+            int row = square >>> 3;
+            //Every row ahead of the pawn, for white upward and for black downward
+            long ahead = (row == 7) ? 0 : -1L << ((row + 1) * 8);
+            long behind = (row == 0) ? 0 : -1L >>> ((8 - row) * 8);
+            PASSED_SPANS[0][square] = span & ahead;
+            PASSED_SPANS[1][square] = span & behind;
+        }
+    }
+
+    //Packed middlegame and endgame scores, as written by pack, white's minus black's
+    private final long[] pawnKeys = new long[PAWN_CACHE_SIZE];
+    private final long[] pawnScores = new long[PAWN_CACHE_SIZE];
+    private final long[] mobilityKeys = new long[MOBILITY_CACHE_SIZE];
+    private final long[] mobilityScores = new long[MOBILITY_CACHE_SIZE];
+
+    @Override
+    public int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        long pawns = pawnStructure(board);
+        long mobility = mobility(board);
+        int middlegame = board.middlegameScore() + middlegame(pawns) + middlegame(mobility);
+        int endgame = board.endgameScore() + endgame(pawns) + endgame(mobility);
+        int phase = Math.min(board.phase(), ChessBoard.FULL_PHASE);
+        int score = (middlegame * phase + endgame * (ChessBoard.FULL_PHASE - phase)) / ChessBoard.FULL_PHASE;
+        return (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? score : -score;
+    }
+
+    private long pawnStructure(ChessBoard board) {
+        long key = board.pawnKey();
+        int index = (int) key & (PAWN_CACHE_SIZE - 1);
+        //Every empty entry holds key 0 and score 0, which is right for a board without pawns
+        if (pawnKeys[index] != key) {
+            long white = board.pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+            long black = board.pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+            pawnKeys[index] = key;
+            pawnScores[index] = subtract(pawnStructure(white, black, 0), pawnStructure(black, white, 1));
+        }
+        return pawnScores[index];
+    }
+
+    private static long pawnStructure(long pawns, long enemyPawns, int color) {
+        int middlegame = 0;
+        int endgame = 0;
+        for (int file = 0; file < 8; file++) {
+            int count = Long.bitCount(pawns & (FILE_A << file));
+            if (count == 0) {
+                continue;
+            }
+            middlegame += (count - 1) * DOUBLED_MIDDLEGAME;
+            endgame += (count - 1) * DOUBLED_ENDGAME;
+            if ((pawns & ADJACENT_FILES[file]) == 0) {
+                middlegame += count * ISOLATED_MIDDLEGAME;
+                endgame += count * ISOLATED_ENDGAME;
+            }
+        }
+        long remaining = pawns;
+        while (remaining != 0) {
+            int square = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            if ((PASSED_SPANS[color][square] & enemyPawns) == 0) {
+                int advanced = (color == 0) ? square >>> 3 : 7 - (square >>> 3);
+                middlegame += PASSED_MIDDLEGAME[advanced];
+                endgame += PASSED_ENDGAME[advanced];
+            }
+        }
+        return pack(middlegame, endgame);
+    }
+
+    private long mobility(ChessBoard board) {
+        long key = board.positionKey();
+        int index = (int) key & (MOBILITY_CACHE_SIZE - 1);
+        if (mobilityKeys[index] != key) {
+            mobilityKeys[index] = key;
+            mobilityScores[index] = subtract(mobility(board, ChessGame.TeamColor.WHITE),
+                    mobility(board, ChessGame.TeamColor.BLACK));
+        }
+        return mobilityScores[index];
+    }
+
+    /**
+     * Counts the squares each piece of a team attacks that its own pieces do not stand on
+     */
+    private static long mobility(ChessBoard board, ChessGame.TeamColor team) {
+        long own = board.occupancy(team);
+        int middlegame = 0;
+        int endgame = 0;
+        for (ChessPiece.PieceType type : MOBILE_TYPES) {
+            int ordinal = type.ordinal();
+            long pieces = board.pieces(team, type);
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                int extra = Long.bitCount(board.attacks(square) & ~own) - MOBILITY_BASE[ordinal];
+                middlegame += extra * MOBILITY_MIDDLEGAME[ordinal];
+                endgame += extra * MOBILITY_ENDGAME[ordinal];
+            }
+        }
+        return pack(middlegame, endgame);
+    }
+
+    private static long pack(int middlegame, int endgame) {
+        return ((long) middlegame << 32) | (endgame & 0xFFFF_FFFFL);
+    }
+
+    private static long subtract(long white, long black) {
+        return pack(middlegame(white) - middlegame(black), endgame(white) - endgame(black));
+    }
+
+    private static int middlegame(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    private static int endgame(long packed) {
+        return (int) packed;
+    }
+}
@@ -0,0 +1,18 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+/**
+ * Scores a position for the search without looking ahead.
+ * <p>
+ * An evaluator may keep state between calls, such as caches, so one must not be shared
+ * between threads; {@link ParallelSearch} gives each thread its own.
+ */
+public interface Evaluator {
+
+    /**
+     * @param game the position to score
+     * @return the score in centipawns, positive when the team whose turn it is stands better
+     */
+    int evaluate(ChessGame game);
+}
@@ -0,0 +1,28 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * Scores a position by counting the material each team has left
+ */
+public class MaterialEvaluator implements Evaluator {
+
+    //Centipawns, indexed by PieceType ordinal; kings are never captured, so they count for nothing
+    static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    @Override
+    public int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        int score = 0;
+        for (ChessPiece.PieceType type : PIECE_TYPES) {
+            int count = Long.bitCount(board.pieces(ChessGame.TeamColor.WHITE, type))
+                    - Long.bitCount(board.pieces(ChessGame.TeamColor.BLACK, type));
+            score += count * PIECE_VALUES[type.ordinal()];
+        }
+        return (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? score : -score;
+    }
+}
@@ -0,0 +1,156 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * Scores positions with an {@link NnueNetwork}.
+ * <p>
+ * The hidden layer before clamping, the accumulator, is the sum of the weights of the
+ * pieces on the board, once from each team's side. Rather than summing every piece at
+ * every position, the evaluator remembers which pieces its accumulators hold and only
+ * subtracts the weights of pieces gone since the last evaluation and adds those of pieces
+ * arrived. A search evaluates positions a move or two apart, so this touches a few pieces
+ * per evaluation, and it stays right however the board got where it is, through
+ * {@link ChessGame#doMove(int)}, {@link ChessGame#undoMove()} or anything else.
+ * <p>
+ * Inner loops are plain counted loops over 16-bit arrays, the shape the JIT can turn into
+ * vector instructions, rather than calls to the still incubating Vector API. The
+ * network may be shared between threads.
+ */
+public final class NnueEvaluator implements Evaluator {
+
+    //Past this many pieces placed or removed, summing every piece again is cheaper
+    private static final int REFRESH_THRESHOLD = 12;
+    //A network's output has no bound of its own, but the search reads scores this large as mates
+    static final int MAX_SCORE = Search.MATE - Search.MAX_PLY - 1;
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+    private static final ChessGame.TeamColor[] TEAMS = ChessGame.TeamColor.values();
+
+    private final NnueNetwork network;
+    private final int hiddenSize;
+    private final short[] featureWeights;
+    //Indexed by the side whose view it holds, white then black
+    private final short[][] accumulators;
+    //The pieces the accumulators hold, one bitboard per team and piece type
+    private final long[] known = new long[12];
+    private final long[] current = new long[12];
+    private boolean valid;
+
+    public NnueEvaluator(NnueNetwork network) {
+        this.network = network;
+        this.hiddenSize = network.hiddenSize();
+        this.featureWeights = network.featureWeights();
+        this.accumulators = new short[2][hiddenSize];
+    }
+
+    @Override
+    public int evaluate(ChessGame game) {
+        update(game.getBoard());
+        int toMove = (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? 0 : 1;
+        short[] ours = accumulators[toMove];
+        short[] theirs = accumulators[1 - toMove];
+        short[] outputWeights = network.outputWeights();
+        int sum = 0;
+        for (int i = 0; i < hiddenSize; i++) {
+            sum += clamp(ours[i]) * outputWeights[i];
+        }
+        for (int i = 0; i < hiddenSize; i++) {
+            sum += clamp(theirs[i]) * outputWeights[hiddenSize + i];
+        }
+        long output = (long) sum + network.outputBias();
+        long score = output * NnueNetwork.CENTIPAWNS / (NnueNetwork.HIDDEN_SCALE * NnueNetwork.OUTPUT_SCALE);
+        return (int) Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+    }
+
+    /**
+     * Brings the accumulators up to date with the pieces on a board
+     */
+    private void update(ChessBoard board) {
+        int changed = 0;
+        for (ChessGame.TeamColor team : TEAMS) {
+            for (ChessPiece.PieceType type : PIECE_TYPES) {
+                int piece = pieceIndex(team.ordinal(), type.ordinal());
+                current[piece] = board.pieces(team, type);
+                changed += Long.bitCount(current[piece] ^ known[piece]);
+            }
+        }
+        if (!valid || changed > REFRESH_THRESHOLD) {
+            refresh();
+            return;
+        }
+        for (int piece = 0; piece < 12; piece++) {
+            long removed = known[piece] & ~current[piece];
+            long added = current[piece] & ~known[piece];
+            while (removed != 0) {
+                int square = Long.numberOfTrailingZeros(removed);
+                removed &= removed - 1;
+                subtract(accumulators[0], feature(0, piece, square));
+                subtract(accumulators[1], feature(1, piece, square));
+            }
+            while (added != 0) {
+                int square = Long.numberOfTrailingZeros(added);
+                added &= added - 1;
+                add(accumulators[0], feature(0, piece, square));
+                add(accumulators[1], feature(1, piece, square));
+            }
+            known[piece] = current[piece];
+        }
+    }
+
+    private void refresh() {
+        for (short[] accumulator : accumulators) {
+            System.arraycopy(network.hiddenBiases(), 0, accumulator, 0, hiddenSize);
+        }
+        for (int piece = 0; piece < 12; piece++) {
+            long pieces = current[piece];
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                add(accumulators[0], feature(0, piece, square));
+                add(accumulators[1], feature(1, piece, square));
+            }
+            known[piece] = current[piece];
+        }
+        valid = true;
+    }
+
+    private void add(short[] accumulator, int feature) {
+        int offset = feature * hiddenSize;
+        for (int i = 0; i < hiddenSize; i++) {
+            accumulator[i] += featureWeights[offset + i];
+        }
+    }
+
+    private void subtract(short[] accumulator, int feature) {
+        int offset = feature * hiddenSize;
+        for (int i = 0; i < hiddenSize; i++) {
+            accumulator[i] -= featureWeights[offset + i];
+        }
+    }
+
+    /**
+     * Numbers a piece on a square as one side sees it: its own pieces first, and the board
+     * turned around for black, so both sides share one set of weights
+     *
+     * @param side  0 for white's view, 1 for black's
+     * @param piece the team's index times 6 plus the piece type's ordinal
+     */
+    private static int feature(int side, int piece, int square) {
+        int team = piece / 6;
+        int type = piece % 6;
+        int relativeTeam = (team == side) ? 0 : 1;
+        int relativeSquare = (side == 0) ? square : square ^ 56;
+        return (relativeTeam * 6 + type) * 64 + relativeSquare;
+    }
+
+    private static int pieceIndex(int team, int type) {
+        return team * 6 + type;
+    }
+
+    private static int clamp(short value) {
+        int clamped = (value < 0) ? 0 : value;
+        return (clamped > NnueNetwork.HIDDEN_SCALE) ? NnueNetwork.HIDDEN_SCALE : clamped;
+    }
+}
@@ -0,0 +1,198 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The weights of a small quantized neural network for {@link NnueEvaluator}: 768 inputs,
+ * one for each team, piece type and square, seen from one team's side; a hidden layer
+ * computed once from each team's side; and one output from both halves, the side to
+ * move's first.
+ * <p>
+ * Weights files are little-endian: the magic number {@code NNUE} as an int, the format
+ * version 1, the hidden layer size, then the feature weights with each input's weights
+ * together, the hidden biases, the output weights and the output bias as an int.
+ * Everything but the output bias is a 16-bit integer.
+ */
+public final class NnueNetwork {
+
+    public static final int INPUTS = 768;
+    //Hidden values are clamped to 0..HIDDEN_SCALE, which stands for 0..1
+    static final int HIDDEN_SCALE = 255;
+    //Output weights are quantized to OUTPUT_SCALE per 1
+    static final int OUTPUT_SCALE = 64;
+    //Centipawns per unit of network output
+    static final int CENTIPAWNS = 400;
+
+    private static final int MAGIC = 0x4555_4E4E;
+    private static final int VERSION = 1;
+
+    private final int hiddenSize;
+    //featureWeights[input * hiddenSize + i] is what the input adds to hidden value i
+    private final short[] featureWeights;
+    private final short[] hiddenBiases;
+    //The side to move's hidden values' weights, then the other side's
+    private final short[] outputWeights;
+    private final int outputBias;
+
+    /**
+     * @throws IllegalArgumentException if the arrays do not fit the hidden layer size, or
+     *                                  the weights are large enough to overflow
+     */
+    public NnueNetwork(int hiddenSize, short[] featureWeights, short[] hiddenBiases, short[] outputWeights,
+                       int outputBias) {
+        if (hiddenSize < 1 || featureWeights.length != INPUTS * hiddenSize || hiddenBiases.length != hiddenSize
+                || outputWeights.length != 2 * hiddenSize) {
+            throw new IllegalArgumentException("Network weights do not match a hidden layer of " + hiddenSize);
+        }
+        //The output is summed in an int, so keep its largest possible value in range
+        long largest = 0;
+        for (short weight : outputWeights) {
+            largest += (long) Math.abs(weight) * HIDDEN_SCALE;
+        }
+        if (largest + Math.abs((long) outputBias) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Output weights are too large");
+        }
+        if (!accumulatorsFit(hiddenSize, featureWeights, hiddenBiases)) {
+            throw new IllegalArgumentException("Feature weights are large enough to overflow the accumulators");
+        }
+        this.hiddenSize = hiddenSize;
+        this.featureWeights = featureWeights;
+        this.hiddenBiases = hiddenBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * Checks that every hidden value before clamping, its bias plus the weights of the
+     * pieces on the board, fits in 16 bits for any board. A square holds at most one piece
+     * and a board at most 32, so each hidden value is bounded by its bias plus the 32
+     * largest of each square's largest weight, and likewise below. Adding and taking away
+     * pieces one at a time may overflow on the way, but wraps back to the same sum.
+     */
+    private static boolean accumulatorsFit(int hiddenSize, short[] featureWeights, short[] hiddenBiases) {
+        int[] highest = new int[64];
+        int[] lowest = new int[64];
+        for (int i = 0; i < hiddenSize; i++) {
+            for (int square = 0; square < 64; square++) {
+                highest[square] = 0;
+                lowest[square] = 0;
+                for (int piece = 0; piece < 12; piece++) {
+                    int weight = featureWeights[(piece * 64 + square) * hiddenSize + i];
+                    highest[square] = Math.max(highest[square], weight);
+                    lowest[square] = Math.min(lowest[square], weight);
+                }
+            }
+            Arrays.sort(highest);
+            Arrays.sort(lowest);
+            int high = hiddenBiases[i];
+            int low = hiddenBiases[i];
+            for (int piece = 0; piece < 32; piece++) {
+                high += highest[63 - piece];
+                low += lowest[piece];
+            }
+            if (high > Short.MAX_VALUE || low < Short.MIN_VALUE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a network from a weights file
+     *
+     * @throws IOException if the file cannot be read or is not a weights file
+     */
+    public static NnueNetwork load(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a version " + VERSION + " NNUE weights file: " + path);
+        }
+        int hiddenSize = buffer.getInt();
+        long expected = 2L * (INPUTS * (long) hiddenSize + 3L * hiddenSize) + 4;
+        if (hiddenSize < 1 || buffer.remaining() != expected) {
+            throw new IOException("NNUE weights file has the wrong size for " + hiddenSize + " hidden values: " + path);
+        }
+        short[] featureWeights = new short[INPUTS * hiddenSize];
+        short[] hiddenBiases = new short[hiddenSize];
+        short[] outputWeights = new short[2 * hiddenSize];
+        buffer.asShortBuffer().get(featureWeights);
+        buffer.position(buffer.position() + 2 * featureWeights.length);
+        buffer.asShortBuffer().get(hiddenBiases);
+        buffer.position(buffer.position() + 2 * hiddenBiases.length);
+        buffer.asShortBuffer().get(outputWeights);
+        buffer.position(buffer.position() + 2 * outputWeights.length);
+        try {
+            return new NnueNetwork(hiddenSize, featureWeights, hiddenBiases, outputWeights, buffer.getInt());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage() + ": " + path, e);
+        }
+    }
+
+    /**
+     * Writes the network as a weights file that {@link #load(Path)} reads back
+     */
+    public void save(Path path) throws IOException {
+        int size = 12 + 2 * (featureWeights.length + hiddenBiases.length + outputWeights.length) + 4;
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(hiddenSize);
+        for (short weight : featureWeights) {
+            buffer.putShort(weight);
+        }
+        for (short bias : hiddenBiases) {
+            buffer.putShort(bias);
+        }
+        for (short weight : outputWeights) {
+            buffer.putShort(weight);
+        }
+        buffer.putInt(outputBias);
+        Files.write(path, buffer.array());
+    }
+
+    /**
+     * Makes a network with small random weights. It plays no better than chance, but
+     * evaluates exactly as fast as a trained network of the same size, so it serves for
+     * tests and benchmarks.
+     */
+    public static NnueNetwork random(int hiddenSize, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        short[] featureWeights = new short[INPUTS * hiddenSize];
+        for (int i = 0; i < featureWeights.length; i++) {
+            featureWeights[i] = (short) random.nextInt(-16, 17);
+        }
+        short[] hiddenBiases = new short[hiddenSize];
+        for (int i = 0; i < hiddenSize; i++) {
+            hiddenBiases[i] = (short) random.nextInt(0, HIDDEN_SCALE + 1);
+        }
+        short[] outputWeights = new short[2 * hiddenSize];
+        for (int i = 0; i < outputWeights.length; i++) {
+            outputWeights[i] = (short) random.nextInt(-OUTPUT_SCALE, OUTPUT_SCALE + 1);
+        }
+        return new NnueNetwork(hiddenSize, featureWeights, hiddenBiases, outputWeights, 0);
+    }
+
+    public int hiddenSize() {
+        return hiddenSize;
+    }
+
+    short[] featureWeights() {
+        return featureWeights;
+    }
+
+    short[] hiddenBiases() {
+        return hiddenBiases;
+    }
+
+    short[] outputWeights() {
+        return outputWeights;
+    }
+
+    int outputBias() {
+        return outputBias;
+    }
+}
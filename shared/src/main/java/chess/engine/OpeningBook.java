@@ -0,0 +1,174 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Move;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * An opening book file: moves known to be good in positions often reached early in the
+ * game, read straight from a memory-mapped file.
+ * <p>
+ * The file is a sorted array of 16-byte big-endian entries: the position key from
+ * {@link ChessGame#positionKey()}, the move's start square, end square and promotion in the
+ * low 15 bits of a short as in {@link Move}, a weight as an unsigned short, and a 32-bit
+ * learn value. Entries are sorted by key, compared unsigned, then by weight, highest first.
+ * Opening a book only maps the file; the operating system pages in the parts that probes
+ * touch, so a large book costs no heap and no loading time.
+ * <p>
+ * Position keys are this program's own, so books built for other programs cannot be read.
+ * {@link OpeningBookBuilder} makes books from PGN files.
+ */
+public final class OpeningBook implements AutoCloseable {
+
+    static final int ENTRY_BYTES = 16;
+    //Entries per mapped segment, so books past 2 GB, the most one buffer can map, can be read
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_ENTRIES = 1L << SEGMENT_SHIFT;
+    private static final int MOVE_MASK = 0x7FFF;
+
+    /**
+     * A move found in the book
+     *
+     * @param move   the move
+     * @param weight how strongly the book recommends it, relative to the other moves of the position
+     * @param learn  a value for the program to keep about the move, such as results from playing it
+     */
+    public record Entry(ChessMove move, int weight, int learn) {
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long entries;
+
+    private OpeningBook(FileChannel channel, MappedByteBuffer[] segments, long entries) {
+        this.channel = channel;
+        this.segments = segments;
+        this.entries = entries;
+    }
+
+    /**
+     * Maps a book file into memory for reading
+     *
+     * @throws IOException if the file cannot be read or its size is not a whole number of entries
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size % ENTRY_BYTES != 0) {
+                throw new IOException("Opening book size is not a multiple of " + ENTRY_BYTES + " bytes: " + path);
+            }
+            long entries = size / ENTRY_BYTES;
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((entries + SEGMENT_ENTRIES - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_ENTRIES * ENTRY_BYTES;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_ENTRIES * ENTRY_BYTES,
+                        size - start));
+            }
+            return new OpeningBook(channel, segments, entries);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return how many entries the book holds
+     */
+    public long size() {
+        return entries;
+    }
+
+    /**
+     * Finds the book's moves for a position
+     *
+     * @param game the position
+     * @return the moves, highest weight first, or an empty list if the position is not in the book
+     */
+    public List<Entry> probe(ChessGame game) {
+        return probe(game.positionKey());
+    }
+
+    /**
+     * Finds the book's moves for a position key
+     *
+     * @param key the key from {@link ChessGame#positionKey()}
+     * @return the moves, highest weight first, or an empty list if the key is not in the book
+     */
+    public List<Entry> probe(long key) {
+        //Binary search for the first entry with the key
+        long low = 0;
+        long high = entries;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(key(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<Entry> found = new ArrayList<>();
+        for (long index = low; index < entries && key(index) == key; index++) {
+            ByteBuffer segment = segment(index);
+            int offset = offset(index);
+            int move = segment.getShort(offset + 8) & MOVE_MASK;
+            found.add(new Entry(Move.toChessMove(move), segment.getShort(offset + 10) & 0xFFFF,
+                    segment.getInt(offset + 12)));
+        }
+        return found;
+    }
+
+    /**
+     * Chooses one of the book's moves for a position at random, each move as likely as its
+     * share of the weights, so the program does not always play the same opening
+     *
+     * @param game   the position
+     * @param random where to draw the choice from
+     * @return the move, or null if the position is not in the book or its moves have no weight
+     */
+    public ChessMove choose(ChessGame game, RandomGenerator random) {
+        List<Entry> found = probe(game);
+        int total = 0;
+        for (Entry entry : found) {
+            total += entry.weight();
+        }
+        if (total == 0) {
+            return null;
+        }
+        int pick = random.nextInt(total);
+        for (Entry entry : found) {
+            pick -= entry.weight();
+            if (pick < 0) {
+                return entry.move();
+            }
+        }
+        throw new IllegalStateException("Weights changed while choosing");
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long key(long index) {
+        return segment(index).getLong(offset(index));
+    }
+
+    private ByteBuffer segment(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)];
+    }
+
+    private static int offset(long index) {
+        return (int) (index & (SEGMENT_ENTRIES - 1)) * ENTRY_BYTES;
+    }
+}
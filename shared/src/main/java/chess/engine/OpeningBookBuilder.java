@@ -0,0 +1,214 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Pgn;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Builds an {@link OpeningBook} from games in PGN files. Each move played in the first
+ * plies of a game counts 2 for its team if the game was won, 1 if drawn or unfinished and
+ * nothing if lost, and a move's weight is its count over all games. Moves that never
+ * scored are left out.
+ * <p>
+ * Each move played is kept as a record of two longs: the position key, and the count
+ * above the move's low 15 bits. When the records fill their array they are sorted and
+ * records of the same position and move merged, and the array only grows if that frees
+ * less than half of it. Opening plies repeat heavily between games, so the memory needed
+ * stays within about 64 bytes per distinct position and move, rather than growing with
+ * the PGN files.
+ * <p>
+ * Usage: {@code OpeningBookBuilder [--plies n] book.bin games.pgn...}
+ */
+public final class OpeningBookBuilder {
+
+    public static final int DEFAULT_PLIES = 24;
+
+    private static final int MOVE_BITS = 15;
+    private static final int MOVE_MASK = (1 << MOVE_BITS) - 1;
+    private static final int INITIAL_RECORDS = 1 << 16;
+
+    private final int plies;
+    //Position key, then count << MOVE_BITS | move, for each record
+    private long[] records = new long[INITIAL_RECORDS * 2];
+    private int size;
+    private long games;
+    private long skipped;
+
+    /**
+     * @param plies how many moves by either team to take from the start of each game
+     */
+    public OpeningBookBuilder(int plies) {
+        if (plies < 1) {
+            throw new IllegalArgumentException("A book needs at least one ply from each game");
+        }
+        this.plies = plies;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int plies = DEFAULT_PLIES;
+        int first = 0;
+        if (args.length >= 2 && args[0].equals("--plies")) {
+            plies = Integer.parseInt(args[1]);
+            first = 2;
+        }
+        if (args.length - first < 2) {
+            System.err.println("Usage: OpeningBookBuilder [--plies n] book.bin games.pgn...");
+            return;
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+        for (int i = first + 1; i < args.length; i++) {
+            builder.addPgn(Path.of(args[i]));
+        }
+        long entries = builder.write(Path.of(args[first]));
+        System.out.println("Read " + builder.games + " games, skipped " + builder.skipped
+                + " with illegal moves, wrote " + entries + " entries");
+    }
+
+    /**
+     * Adds every game in a PGN file
+     */
+    public void addPgn(Path pgn) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(pgn, StandardCharsets.UTF_8)) {
+            Pgn.read(reader, this::addGame);
+        }
+    }
+
+    /**
+     * Adds the opening moves of one game. A game with a move that is not legal is left out
+     * from that move on.
+     */
+    public void addGame(Pgn.Game game) {
+        games++;
+        int whiteScore = switch (game.result()) {
+            case "1-0" -> 2;
+            case "0-1" -> 0;
+            default -> 1;
+        };
+        try {
+            Pgn.replay(new Pgn.Game(game.tags(), game.moves().subList(0, Math.min(plies, game.moves().size())),
+                    game.result()), (position, move) -> {
+                int score = (position.getTeamTurn() == ChessGame.TeamColor.WHITE) ? whiteScore : 2 - whiteScore;
+                if (score > 0) {
+                    add(position.positionKey(), ((long) score << MOVE_BITS) | (move & MOVE_MASK));
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            skipped++;
+        }
+    }
+
+    /**
+     * Writes the book, scaling each position's weights down to fit in 16 bits if needed
+     *
+     * @return how many entries were written
+     */
+    public long write(Path book) throws IOException {
+        merge();
+        long written = 0;
+        try (OutputStream file = Files.newOutputStream(book);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            int start = 0;
+            while (start < size) {
+                long key = records[start * 2];
+                int end = start + 1;
+                while (end < size && records[end * 2] == key) {
+                    end++;
+                }
+                //Counts sit above the moves, so sorting the packed values orders moves by count
+                long[] moves = new long[end - start];
+                for (int i = 0; i < moves.length; i++) {
+                    moves[i] = records[(start + i) * 2 + 1];
+                }
+                Arrays.sort(moves);
+                long highest = moves[moves.length - 1] >>> MOVE_BITS;
+                double scale = (highest > 0xFFFF) ? (double) 0xFFFF / highest : 1;
+                for (int i = moves.length - 1; i >= 0; i--) {
+                    out.writeLong(key);
+                    out.writeShort((int) (moves[i] & MOVE_MASK));
+                    out.writeShort((int) Math.max(1, (moves[i] >>> MOVE_BITS) * scale));
+                    out.writeInt(0);
+                    written++;
+                }
+                start = end;
+            }
+        }
+        return written;
+    }
+
+    private void add(long key, long countAndMove) {
+        if (size * 2 == records.length) {
+            merge();
+            if (size * 4 > records.length) {
+                records = Arrays.copyOf(records, records.length * 2);
+            }
+        }
+        records[size * 2] = key;
+        records[size * 2 + 1] = countAndMove;
+        size++;
+    }
+
+    /**
+     * Sorts the records by key, unsigned as the book is, then by move, and merges those of
+     * the same position and move into one
+     */
+    private void merge() {
+        //Heapsort, as the two longs of a record must move together
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i, size);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        int merged = 0;
+        for (int i = 0; i < size; i++) {
+            if (merged > 0 && compare(merged - 1, i) == 0) {
+                records[(merged - 1) * 2 + 1] += records[i * 2 + 1] & ~(long) MOVE_MASK;
+            } else {
+                records[merged * 2] = records[i * 2];
+                records[merged * 2 + 1] = records[i * 2 + 1];
+                merged++;
+            }
+        }
+        size = merged;
+    }
+
+    private void siftDown(int parent, int end) {
+        int child = parent * 2 + 1;
+        while (child < end) {
+            if (child + 1 < end && compare(child + 1, child) > 0) {
+                child++;
+            }
+            if (compare(child, parent) <= 0) {
+                return;
+            }
+            swap(parent, child);
+            parent = child;
+            child = parent * 2 + 1;
+        }
+    }
+
+    private int compare(int first, int second) {
+        int byKey = Long.compareUnsigned(records[first * 2], records[second * 2]);
+        return (byKey != 0) ? byKey
+                : Integer.compare((int) (records[first * 2 + 1] & MOVE_MASK), (int) (records[second * 2 + 1] & MOVE_MASK));
+    }
+
+    private void swap(int first, int second) {
+        long key = records[first * 2];
+        long countAndMove = records[first * 2 + 1];
+        records[first * 2] = records[second * 2];
+        records[first * 2 + 1] = records[second * 2 + 1];
+        records[second * 2] = key;
+        records[second * 2 + 1] = countAndMove;
+    }
+}
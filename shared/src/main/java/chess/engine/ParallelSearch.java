@@ -0,0 +1,125 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Searches one position on several threads at once (Lazy SMP). Every thread runs its own
+ * {@link Search} on its own copy of the position, and they share one transposition table,
+ * so what one thread finds cuts short the work of the others. Half of the helper threads
+ * start one iteration deeper than the main thread, so the threads spread over the tree
+ * instead of all following the same moves. The main thread's result is reported.
+ */
+public final class ParallelSearch implements AutoCloseable {
+
+    private static final int DEFAULT_TABLE_MEGABYTES = 64;
+
+    private final ChessGame game;
+    private final Supplier<Evaluator> evaluators;
+    private final TranspositionTable table;
+    private final SearchOptions options;
+    private final int threads;
+    private final Search main;
+    private final ExecutorService helperPool;
+
+    public ParallelSearch(ChessGame game, int threads) {
+        this(game, ClassicalEvaluator::new, new TranspositionTable(DEFAULT_TABLE_MEGABYTES), threads);
+    }
+
+    /**
+     * @param game       the game to search; helper threads search copies of it
+     * @param evaluators creates an evaluator for each thread, since evaluators may keep state
+     * @param table      the table all threads share
+     * @param threads    how many threads to search with, including the calling thread
+     */
+    public ParallelSearch(ChessGame game, Supplier<Evaluator> evaluators, TranspositionTable table, int threads) {
+        this(game, evaluators, table, SearchOptions.ALL, threads);
+    }
+
+    /**
+     * @param game       the game to search; helper threads search copies of it
+     * @param evaluators creates an evaluator for each thread, since evaluators may keep state
+     * @param table      the table all threads share
+     * @param options    which pruning and ordering heuristics every thread uses
+     * @param threads    how many threads to search with, including the calling thread
+     */
+    public ParallelSearch(ChessGame game, Supplier<Evaluator> evaluators, TranspositionTable table,
+                          SearchOptions options, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least one thread");
+        }
+        this.game = game;
+        this.evaluators = evaluators;
+        this.table = table;
+        this.options = options;
+        this.threads = threads;
+        main = new Search(game, evaluators.get(), table, options);
+        helperPool = (threads > 1) ? Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public SearchResult search(SearchLimits limits) {
+        return search(limits, result -> { });
+    }
+
+    /**
+     * Searches the game's position on all threads until the main thread reaches a limit
+     *
+     * @param limits      when the main thread should stop; helpers stop with it
+     * @param onIteration called with each iteration the main thread finishes
+     * @return the main thread's result, with the nodes of every thread counted
+     */
+    public SearchResult search(SearchLimits limits, Consumer<SearchResult> onIteration) {
+        table.newSearch();
+        List<Search> helpers = new ArrayList<>(threads - 1);
+        List<Future<SearchResult>> helperResults = new ArrayList<>(threads - 1);
+        SearchLimits helperLimits = new SearchLimits(limits.depth(), 0, 0);
+        for (int i = 1; i < threads; i++) {
+            Search helper = new Search(new ChessGame(game), evaluators.get(), table, options);
+            int firstDepth = 1 + (i % 2);
+            helpers.add(helper);
+            helperResults.add(helperPool.submit(() -> helper.search(helperLimits, result -> { }, firstDepth)));
+        }
+
+        SearchResult result;
+        try {
+            result = main.search(limits, onIteration, 1);
+        } finally {
+            helpers.forEach(Search::stop);
+        }
+        long nodes = result.nodes();
+        for (Future<SearchResult> helperResult : helperResults) {
+            try {
+                nodes += helperResult.get().nodes();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search helper failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return new SearchResult(result.bestMove(), result.score(), result.depth(), nodes, result.millis(),
+                result.principalVariation());
+    }
+
+    /**
+     * Stops the helper threads. The search cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (helperPool != null) {
+            helperPool.shutdownNow();
+        }
+    }
+}
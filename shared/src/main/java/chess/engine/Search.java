@@ -0,0 +1,508 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.Move;
+import chess.MoveBuffer;
+import chess.Tablebase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Chooses a move by negamax alpha-beta search with iterative deepening: the position is
+ * searched one move deeper at a time until a limit is reached, and each finished
+ * iteration's best line is searched first by the next one.
+ * <p>
+ * Moves are tried out on the game itself with {@link ChessGame#doMove(int)} and taken back,
+ * so the game must not be used elsewhere during a search. It is left as it was found.
+ * <p>
+ * Positions below the root that repeat an earlier position of the line or of the game,
+ * that reach the fifty-move limit or that lack the material to mate are scored as draws:
+ * a team that can repeat once can repeat again. If the game has a {@link Tablebase},
+ * other positions below the root that it holds are scored from it instead of being
+ * searched.
+ */
+public final class Search {
+
+    //Scores beyond any evaluation; a mate found n moves by either team from the root scores MATE - n
+    public static final int MATE = 32000;
+    static final int INFINITY = MATE + 1;
+    static final int MAX_PLY = 128;
+    //How many nodes pass between looks at the clock
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    private static final int DEFAULT_TABLE_MEGABYTES = 16;
+    //How far below alpha a position may be scored at depth 1 and 2 and still have its quiet moves searched
+    private static final int[] FUTILITY_MARGINS = {0, 200, 500};
+    //History scores are halved once one reaches this, keeping them below killer moves' order
+    private static final int HISTORY_LIMIT = 8_000;
+
+    private final ChessGame game;
+    private final Evaluator evaluator;
+    private final TranspositionTable table;
+    private final SearchOptions options;
+    //Per-ply buffers, so the search creates no objects per node
+    private final MoveBuffer[] moves = new MoveBuffer[MAX_PLY];
+    private final int[][] moveScores = new int[MAX_PLY][];
+    //Triangular table of best lines: pv[ply] holds the line found from ply onwards
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private int[] previousPv = new int[0];
+    //Two quiet moves per ply that last cut off the search there
+    private final int[][] killers = new int[MAX_PLY][2];
+    //How much each quiet move, by team, start and end square, has cut off the search
+    private final int[][] history = new int[2][64 * 64];
+
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean stopped;
+    //Set by another thread to end the search early
+    private volatile boolean stopRequested;
+
+    public Search(ChessGame game) {
+        this(game, new ClassicalEvaluator());
+    }
+
+    public Search(ChessGame game, Evaluator evaluator) {
+        this(game, evaluator, new TranspositionTable(DEFAULT_TABLE_MEGABYTES));
+    }
+
+    /**
+     * @param game      the game to search
+     * @param evaluator scores positions at the end of each line
+     * @param table     where to remember positions between nodes and between searches;
+     *                  may be shared with other searches
+     */
+    public Search(ChessGame game, Evaluator evaluator, TranspositionTable table) {
+        this(game, evaluator, table, SearchOptions.ALL);
+    }
+
+    /**
+     * @param game      the game to search
+     * @param evaluator scores positions at the end of each line
+     * @param table     where to remember positions between nodes and between searches;
+     *                  may be shared with other searches
+     * @param options   which pruning and ordering heuristics to use
+     */
+    public Search(ChessGame game, Evaluator evaluator, TranspositionTable table, SearchOptions options) {
+        this.game = game;
+        this.evaluator = evaluator;
+        this.table = table;
+        this.options = options;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            moves[ply] = new MoveBuffer();
+            moveScores[ply] = new int[256];
+        }
+    }
+
+    /**
+     * Searches the game's position for the team whose turn it is
+     *
+     * @param limits when to stop
+     * @return the result of the last finished iteration
+     */
+    public SearchResult search(SearchLimits limits) {
+        return search(limits, result -> { });
+    }
+
+    /**
+     * Searches the game's position for the team whose turn it is, reporting each finished
+     * iteration as it completes
+     *
+     * @param limits      when to stop
+     * @param onIteration called with the result of each iteration, such as to print it
+     * @return the result of the last finished iteration
+     */
+    public SearchResult search(SearchLimits limits, Consumer<SearchResult> onIteration) {
+        stopRequested = false;
+        table.newSearch();
+        return search(limits, onIteration, 1);
+    }
+
+    /**
+     * Searches as {@link #search(SearchLimits, Consumer)} does, but starting at a later
+     * iteration, and leaving the table's generation and any earlier {@link #stop()}
+     * request to the caller
+     */
+    SearchResult search(SearchLimits limits, Consumer<SearchResult> onIteration, int firstDepth) {
+        long start = System.nanoTime();
+        nodes = 0;
+        stopped = false;
+        nodeLimit = (limits.nodes() > 0) ? limits.nodes() : Long.MAX_VALUE;
+        deadline = (limits.millis() > 0) ? start + limits.millis() * 1_000_000 : Long.MAX_VALUE;
+        int maxDepth = (limits.depth() > 0) ? Math.min(limits.depth(), MAX_PLY - 1) : MAX_PLY - 1;
+        previousPv = new int[0];
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, Move.NONE);
+        }
+        for (int[] teamHistory : history) {
+            Arrays.fill(teamHistory, 0);
+        }
+
+        SearchResult result = null;
+        for (int depth = Math.min(firstDepth, maxDepth); depth <= maxDepth; depth++) {
+            int score = negamax(depth, 0, -INFINITY, INFINITY, true);
+            if (stopped) {
+                break;
+            }
+            previousPv = Arrays.copyOf(pv[0], pvLength[0]);
+            result = result(score, depth, start);
+            onIteration.accept(result);
+            if (Math.abs(score) >= MATE - MAX_PLY || pvLength[0] == 0) {
+                //A mate, or no move at all, will not change with more depth
+                break;
+            }
+        }
+        if (result == null) {
+            //Stopped inside the first iteration, so fall back to any legal move
+            MoveBuffer rootMoves = moves[0];
+            rootMoves.clear();
+            game.legalMoves(game.getTeamTurn(), rootMoves);
+            previousPv = rootMoves.isEmpty() ? new int[0] : new int[]{rootMoves.get(0)};
+            result = result(0, 0, start);
+        }
+        return result;
+    }
+
+    /**
+     * Asks a search running on another thread to stop soon. It still returns the result
+     * of its last finished iteration.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    private SearchResult result(int score, int depth, long start) {
+        List<ChessMove> line = new ArrayList<>(previousPv.length);
+        for (int move : previousPv) {
+            line.add(Move.toChessMove(move));
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        return new SearchResult(line.isEmpty() ? null : line.getFirst(), score, depth, nodes, millis, List.copyOf(line));
+    }
+
+    /**
+     * @param allowNull whether passing the turn may be tried, which is not done twice in a row
+     */
+    private int negamax(int depth, int ply, int alpha, int beta, boolean allowNull) {
+        if (depth <= 0) {
+            return quiescence(ply, alpha, beta);
+        }
+        pvLength[ply] = ply;
+        if (visit()) {
+            return 0;
+        }
+        ChessGame.TeamColor turn = game.getTeamTurn();
+        if (ply == MAX_PLY - 1) {
+            return evaluator.evaluate(game);
+        }
+        //At the root a move is wanted, not just a score
+        if (ply > 0 && (game.getHalfmoveClock() >= ChessGame.FIFTY_MOVE_PLIES || game.repetitions() > 0
+                || game.hasInsufficientMaterial())) {
+            return 0;
+        }
+        Tablebase.Result known = (ply > 0 && game.getTablebase() != null) ? game.getTablebase().probe(game) : null;
+        if (known != null) {
+            return tablebaseScore(known, ply);
+        }
+
+        long key = game.positionKey();
+        long entry = table.probe(key);
+        int tableMove = Move.NONE;
+        if (entry != 0) {
+            tableMove = TranspositionTable.move(entry);
+            //At the root a move is always wanted, so only cut off below it
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        boolean inCheck = game.isInCheck(turn);
+        boolean pruning = ply > 0 && !inCheck && Math.abs(beta) < MATE - MAX_PLY;
+        int staticScore = (pruning && (options.nullMove() || options.futility())) ? evaluator.evaluate(game) : 0;
+
+        //Without pawns alone passing can be worse than any move, so only pass with a piece left
+        if (options.nullMove() && pruning && allowNull && depth >= 3 && staticScore >= beta && hasPieces(turn)) {
+            int reduction = (depth >= 6) ? 3 : 2;
+            game.doNullMove();
+            int score = -negamax(depth - 1 - reduction, ply + 1, -beta, -beta + 1, false);
+            game.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                //A mate found after passing is not proven, since passing is not a move
+                return (score >= MATE - MAX_PLY) ? beta : score;
+            }
+        }
+        boolean futile = options.futility() && pruning && depth < FUTILITY_MARGINS.length
+                && staticScore + FUTILITY_MARGINS[depth] <= alpha;
+
+        MoveBuffer list = moves[ply];
+        list.clear();
+        game.legalMoves(turn, list);
+        if (list.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        orderMoves(list, ply, tableMove, false);
+
+        int originalAlpha = alpha;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+            boolean reducible = options.lateMoveReductions() && quiet && !inCheck && depth >= 3 && i >= 3
+                    && move != killers[ply][0] && move != killers[ply][1];
+            game.doMove(move);
+            boolean givesCheck = quiet && (futile || reducible) && game.isInCheck(game.getTeamTurn());
+            if (futile && quiet && !givesCheck) {
+                game.undoMove();
+                continue;
+            }
+            int score;
+            if (reducible && !givesCheck) {
+                //Late quiet moves are rarely best, so first check cheaply that this one is not
+                int reduction = (depth >= 6 && i >= 6) ? 2 : 1;
+                score = -negamax(depth - 1 - reduction, ply + 1, -alpha - 1, -alpha, true);
+                if (score > alpha && !stopped) {
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha, true);
+                }
+            } else {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha, true);
+            }
+            game.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                bestMove = move;
+                pv[ply][ply] = move;
+                System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - (ply + 1));
+                pvLength[ply] = pvLength[ply + 1];
+                if (alpha >= beta) {
+                    if (quiet) {
+                        rememberCutoff(move, ply, depth, turn);
+                    }
+                    break;
+                }
+            }
+        }
+        int bound = (alpha >= beta) ? TranspositionTable.LOWER
+                : (alpha > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(alpha, ply), depth, bound);
+        return alpha;
+    }
+
+    private boolean hasPieces(ChessGame.TeamColor team) {
+        ChessBoard board = game.getBoard();
+        return (board.pieces(team, ChessPiece.PieceType.QUEEN) | board.pieces(team, ChessPiece.PieceType.ROOK)
+                | board.pieces(team, ChessPiece.PieceType.BISHOP) | board.pieces(team, ChessPiece.PieceType.KNIGHT)) != 0;
+    }
+
+    /**
+     * Records a quiet move that cut off the search, for {@link #orderMoves} to try it early
+     * in other positions
+     */
+    private void rememberCutoff(int move, int ply, int depth, ChessGame.TeamColor turn) {
+        if (options.killers() && killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        if (options.history()) {
+            int[] teamHistory = history[turn.ordinal()];
+            int index = historyIndex(move);
+            teamHistory[index] += depth * depth;
+            if (teamHistory[index] >= HISTORY_LIMIT) {
+                for (int i = 0; i < teamHistory.length; i++) {
+                    teamHistory[i] /= 2;
+                }
+            }
+        }
+    }
+
+    private static int historyIndex(int move) {
+        return Move.from(move) * 64 + Move.to(move);
+    }
+
+    /**
+     * Searches only captures and promotions until the position is quiet, so a line is not
+     * scored in the middle of an exchange. The team to move may stand on the evaluation
+     * instead of capturing, unless it is in check, when every move out of check is searched.
+     * Captures that lose material by {@link ChessBoard#staticExchange(int)} are skipped.
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (visit()) {
+            return 0;
+        }
+        if (ply == MAX_PLY - 1) {
+            return evaluator.evaluate(game);
+        }
+        Tablebase.Result known = (game.getTablebase() != null) ? game.getTablebase().probe(game) : null;
+        if (known != null) {
+            return tablebaseScore(known, ply);
+        }
+        ChessGame.TeamColor turn = game.getTeamTurn();
+        boolean inCheck = game.isInCheck(turn);
+        MoveBuffer list = moves[ply];
+        list.clear();
+        if (inCheck) {
+            game.legalMoves(turn, list);
+            if (list.isEmpty()) {
+                return -MATE + ply;
+            }
+        } else {
+            int standPat = evaluator.evaluate(game);
+            if (standPat >= beta) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+            game.legalCaptures(turn, list);
+        }
+        orderMoves(list, ply, Move.NONE, true);
+
+        int[] scores = moveScores[ply];
+        for (int i = 0; i < list.size(); i++) {
+            if (!inCheck && scores[i] < 0) {
+                //Only losing captures are left
+                break;
+            }
+            int move = list.get(i);
+            game.doMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            game.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Scores a position found in the tablebase, counting mates from the root like the search's own.
+     * A mate further from the root than {@link #MAX_PLY} still scores as a mate, the furthest one.
+     */
+    static int tablebaseScore(Tablebase.Result known, int ply) {
+        return switch (known.outcome()) {
+            case WIN -> Math.max(MATE - ply - known.plies(), MATE - MAX_PLY);
+            case DRAW -> 0;
+            case LOSS -> Math.min(-MATE + ply + known.plies(), -MATE + MAX_PLY);
+        };
+    }
+
+    /**
+     * Counts a node and decides whether the search has to stop
+     *
+     * @return True if the search is out of nodes or time, or was asked to stop
+     */
+    private boolean visit() {
+        nodes++;
+        if (nodes >= nodeLimit
+                || (nodes % TIME_CHECK_INTERVAL == 0 && (stopRequested || System.nanoTime() >= deadline))) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * Mate scores count moves from the root, but a stored position may be reached at another
+     * ply, so the table holds them counted from the position itself. Mates read back at a
+     * deeper ply than they were found stay mates, however far.
+     */
+    static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        return (score <= -MATE + MAX_PLY) ? score - ply : score;
+    }
+
+    static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return Math.max(score - ply, MATE - MAX_PLY);
+        }
+        return (score <= -MATE + MAX_PLY) ? Math.min(score + ply, -MATE + MAX_PLY) : score;
+    }
+
+    /**
+     * Sorts moves so the likeliest best come first: the transposition table's move, the
+     * previous iteration's move at this ply, then promotions and captures of the most
+     * valuable piece by the least valuable one, then killer moves, then quiet moves by
+     * their history, then captures that lose material in the exchange that follows.
+     * Losing captures, and only they, score below 0.
+     *
+     * @param quiescence whether ordering for {@link #quiescence}, which skips losing captures,
+     *                   so none may be moved up for having been the previous iteration's move
+     */
+    private void orderMoves(MoveBuffer list, int ply, int tableMove, boolean quiescence) {
+        ChessBoard board = game.getBoard();
+        int pvMove = (!quiescence && ply < previousPv.length) ? previousPv[ply] : Move.NONE;
+        int[] teamHistory = history[game.getTeamTurn().ordinal()];
+        int[] scores = moveScores[ply];
+        if (scores.length < list.size()) {
+            scores = new int[list.size()];
+            moveScores[ply] = scores;
+        }
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            int score = 0;
+            if (move == tableMove) {
+                score = 2_000_000;
+            } else if (move == pvMove) {
+                score = 1_000_000;
+            } else if (Move.isCapture(move)) {
+                //En passant is the only capture with nothing on the end square, and takes a pawn
+                ChessPiece victim = board.getPiece(Move.to(move));
+                int victimValue = value((victim == null) ? ChessPiece.PieceType.PAWN : victim.getPieceType());
+                int attackerValue = value(board.getPiece(Move.from(move)).getPieceType());
+                score = 10 * victimValue - attackerValue;
+                //Taking a piece worth at least the attacker cannot lose material, so only
+                //work out the exchange when it might
+                boolean losing = victimValue < attackerValue && board.staticExchange(move) < 0;
+                score += losing ? -100_000 : 10_000;
+            } else if (Move.isPromotion(move)) {
+                score = 10_000 + value(Move.promotion(move));
+            } else if (move == killers[ply][0]) {
+                score = HISTORY_LIMIT + 2;
+            } else if (move == killers[ply][1]) {
+                score = HISTORY_LIMIT + 1;
+            } else {
+                score = teamHistory[historyIndex(move)];
+            }
+            scores[i] = score;
+        }
+        //Insertion sort, since move lists are short
+        for (int i = 1; i < list.size(); i++) {
+            int move = list.get(i);
+            int score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                scores[j + 1] = scores[j];
+                list.set(j + 1, list.get(j));
+                j--;
+            }
+            scores[j + 1] = score;
+            list.set(j + 1, move);
+        }
+    }
+
+    private static int value(ChessPiece.PieceType type) {
+        return MaterialEvaluator.PIECE_VALUES[type.ordinal()];
+    }
+}
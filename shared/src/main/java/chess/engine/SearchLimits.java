@@ -0,0 +1,30 @@
+package chess.engine;
+
+/**
+ * When a search should stop. Any limit left at 0 does not apply; the search stops at
+ * whichever of the others it reaches first.
+ *
+ * @param depth  the deepest iteration to search, in moves by either team
+ * @param nodes  how many positions to visit at most
+ * @param millis how long to search for, in milliseconds
+ */
+public record SearchLimits(int depth, long nodes, long millis) {
+
+    public SearchLimits {
+        if (depth < 0 || nodes < 0 || millis < 0) {
+            throw new IllegalArgumentException("Search limits cannot be negative");
+        }
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, nodes, 0);
+    }
+
+    public static SearchLimits millis(long millis) {
+        return new SearchLimits(0, 0, millis);
+    }
+}
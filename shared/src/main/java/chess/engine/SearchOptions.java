@@ -0,0 +1,40 @@
+package chess.engine;
+
+/**
+ * Which of the search's pruning, reduction and move ordering heuristics are switched on.
+ * Each makes the search reach a given depth with fewer nodes, at some risk of missing a
+ * move a full search would find; switching them off one at a time shows what each is worth.
+ *
+ * @param nullMove           skip a position if passing the turn still leaves it winning
+ * @param lateMoveReductions search moves ordered late less deeply, unless they turn out good
+ * @param futility           skip quiet moves near the leaves when even a pawn or more
+ *                           would not lift the score up to what the search already has
+ * @param killers            try first the quiet moves that cut off the search at the same ply
+ * @param history            order the remaining quiet moves by how often each cut off the search
+ */
+public record SearchOptions(boolean nullMove, boolean lateMoveReductions, boolean futility, boolean killers,
+                            boolean history) {
+
+    public static final SearchOptions ALL = new SearchOptions(true, true, true, true, true);
+    public static final SearchOptions NONE = new SearchOptions(false, false, false, false, false);
+
+    public SearchOptions withNullMove(boolean enabled) {
+        return new SearchOptions(enabled, lateMoveReductions, futility, killers, history);
+    }
+
+    public SearchOptions withLateMoveReductions(boolean enabled) {
+        return new SearchOptions(nullMove, enabled, futility, killers, history);
+    }
+
+    public SearchOptions withFutility(boolean enabled) {
+        return new SearchOptions(nullMove, lateMoveReductions, enabled, killers, history);
+    }
+
+    public SearchOptions withKillers(boolean enabled) {
+        return new SearchOptions(nullMove, lateMoveReductions, futility, enabled, history);
+    }
+
+    public SearchOptions withHistory(boolean enabled) {
+        return new SearchOptions(nullMove, lateMoveReductions, futility, killers, enabled);
+    }
+}
@@ -0,0 +1,63 @@
+package chess.engine;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+
+import java.util.List;
+
+/**
+ * What a search found after its last finished iteration
+ *
+ * @param bestMove           the move to play, or null if the team to move has none
+ * @param score              centipawns for the team to move; mates are scored near {@link Search#MATE}
+ * @param depth              the depth of the last finished iteration
+ * @param nodes              positions visited by the whole search so far
+ * @param millis             time spent by the whole search so far
+ * @param principalVariation the line of best play expected, starting with bestMove
+ */
+public record SearchResult(ChessMove bestMove, int score, int depth, long nodes, long millis,
+                           List<ChessMove> principalVariation) {
+
+    /**
+     * @return True if the score is a forced mate for either team
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    public long nodesPerSecond() {
+        return nodes * 1000 / Math.max(1, millis);
+    }
+
+    /**
+     * Describes the result the way UCI engines report each iteration, such as
+     * {@code depth 5 score cp 35 nodes 48213 time 41 pv e2e4 e7e5}
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder().append("depth ").append(depth).append(" score ");
+        if (isMate()) {
+            int plies = Search.MATE - Math.abs(score);
+            text.append("mate ").append((score > 0) ? (plies + 1) / 2 : -(plies / 2));
+        } else {
+            text.append("cp ").append(score);
+        }
+        text.append(" nodes ").append(nodes).append(" time ").append(millis).append(" pv");
+        for (ChessMove move : principalVariation) {
+            text.append(' ').append(square(move.getStartPosition())).append(square(move.getEndPosition()));
+            if (move.getPromotionPiece() != null) {
+                text.append(switch (move.getPromotionPiece()) {
+                    case QUEEN -> 'q';
+                    case ROOK -> 'r';
+                    case BISHOP -> 'b';
+                    default -> 'n';
+                });
+            }
+        }
+        return text.toString();
+    }
+
+    private static String square(ChessPosition position) {
+        return (char) ('a' + position.getColumn() - 1) + String.valueOf(position.getRow());
+    }
+}
@@ -0,0 +1,113 @@
+package chess.engine;
+
+import chess.LocklessTable;
+import chess.Move;
+
+/**
+ * Remembers what searches found about positions, keyed by {@link chess.ChessGame#positionKey()},
+ * so a position reached again by another order of moves is not searched again. Threads
+ * share it without locks, through a {@link LocklessTable} of packed entries.
+ */
+public final class TranspositionTable {
+
+    public static final int EXACT = 1;
+    //The score is at least the stored one; the search failed high
+    public static final int LOWER = 2;
+    //The score is at most the stored one; the search failed low
+    public static final int UPPER = 3;
+
+    //Packed entry layout: move in bits 0-19, score 20-35, depth 36-43, bound 44-45, generation 46-53
+    private static final int SCORE_SHIFT = 20;
+    private static final int DEPTH_SHIFT = 36;
+    private static final int BOUND_SHIFT = 44;
+    private static final int GENERATION_SHIFT = 46;
+    private static final long MOVE_MASK = (1L << SCORE_SHIFT) - 1;
+
+    private final LocklessTable entries;
+    private int generation;
+
+    /**
+     * @param megabytes how much memory the table may use, at least 1
+     */
+    public TranspositionTable(int megabytes) {
+        entries = new LocklessTable(megabytes);
+    }
+
+    /**
+     * @return how many entries the table holds
+     */
+    public int capacity() {
+        return entries.capacity();
+    }
+
+    /**
+     * Looks up a position
+     *
+     * @param key the position key
+     * @return the packed entry, to be read with the static accessors, or 0 if there is none
+     */
+    public long probe(long key) {
+        return entries.probe(key);
+    }
+
+    /**
+     * Stores what a search found about a position. The entry already in its place is kept
+     * if it was searched deeper during the current search and is for another position.
+     *
+     * @param key   the position key
+     * @param move  the best move found as a packed {@link Move}, or {@link Move#NONE}
+     * @param score the score, which must fit in 16 bits
+     * @param depth how deep the position was searched
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        long old = entries.occupant(key);
+        long oldKey = entries.occupantKey(key);
+        if (old != 0 && oldKey != key && generation(old) == generation && depth(old) > depth) {
+            return;
+        }
+        if (move == Move.NONE && oldKey == key) {
+            //Keep the best move found by an earlier search of this position
+            move = move(old);
+        }
+        long entry = (move & MOVE_MASK)
+                | ((long) (score & 0xFFFF) << SCORE_SHIFT)
+                | ((long) Math.min(depth, 255) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) generation << GENERATION_SHIFT);
+        entries.store(key, entry);
+    }
+
+    /**
+     * Marks the start of a new search, after which entries left by earlier searches are
+     * replaced whatever their depth
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        entries.clear();
+        generation = 0;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & MOVE_MASK);
+    }
+
+    public static int score(long entry) {
+        return (short) (entry >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 3;
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & 0xFF;
+    }
+}
@@ -0,0 +1,111 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Checks the status {@link ChessGame#getStatus(ChessGame.TeamColor)} reports, including
+ * draws, and that the remembered status follows the position and the moves that led to
+ * it as moves are made and taken back.
+ */
+public class GameStatusTests {
+
+    @ParameterizedTest(name = "{0}")
+    @DisplayName("Status Of Side To Move")
+    @CsvSource(delimiter = ';', value = {
+            "Start Position; rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1;   ONGOING",
+            "Check;          rnbqkbnr/ppppp1pp/8/5p1Q/4P3/8/PPPP1PPP/RNB1KBNR b KQkq - 1 2; CHECK",
+            "Fool's Mate;    rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3; CHECKMATE",
+            "Stalemate;      7k/5Q2/6K1/8/8/8/8/8 b - - 0 1;                                STALEMATE",
+            "Kings Alone;    8/8/4k3/8/8/3K4/8/8 w - - 0 1;                                 DRAW",
+            "Lone Knight;    8/8/4k3/8/8/3K4/8/6N1 w - - 0 1;                               DRAW",
+            "Lone Bishop;    8/8/4k3/8/8/3K4/8/2b5 w - - 0 1;                               DRAW",
+            "Same Bishops;   8/8/4k3/8/8/3K4/8/2b1B3 w - - 0 1;                             DRAW",
+            "Other Bishops;  8/8/4k3/8/8/3K4/8/2b2B2 w - - 0 1;                             ONGOING",
+            "Two Knights;    8/8/4k3/8/8/3K4/8/1N4N1 w - - 0 1;                             ONGOING",
+            "Lone Pawn;      8/8/4k3/8/8/3K4/6P1/8 w - - 0 1;                               ONGOING",
+            "Fifty Moves;    8/8/4k3/8/8/3K4/6R1/8 w - - 100 80;                            DRAW",
+            "Mate On Fifty;  R5k1/5ppp/8/8/8/8/8/6K1 b - - 100 80;                          CHECKMATE",
+    })
+    public void status(String name, String fen, ChessGame.GameStatus expected) {
+        ChessGame game = Fen.toGame(fen);
+        Assertions.assertEquals(expected, game.getStatus(), "Wrong status for " + name);
+        Assertions.assertEquals(expected == ChessGame.GameStatus.CHECKMATE,
+                game.isInCheckmate(game.getTeamTurn()), "Wrong checkmate answer for " + name);
+        Assertions.assertEquals(expected == ChessGame.GameStatus.STALEMATE,
+                game.isInStalemate(game.getTeamTurn()), "Wrong stalemate answer for " + name);
+    }
+
+    @Test
+    @DisplayName("Status Follows Moves")
+    public void statusFollowsMoves() throws InvalidMoveException {
+        ChessGame game = Fen.toGame("rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq - 0 2");
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getStatus(ChessGame.TeamColor.WHITE));
+
+        game.makeMove(new ChessMove(new ChessPosition(8, 4), new ChessPosition(4, 8), null));
+        Assertions.assertEquals(ChessGame.GameStatus.CHECKMATE, game.getStatus(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getStatus(ChessGame.TeamColor.BLACK));
+
+        game.undoMove();
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getStatus(ChessGame.TeamColor.WHITE));
+
+        game.setBoard(Fen.toGame("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1").getBoard());
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals(ChessGame.GameStatus.STALEMATE, game.getStatus());
+    }
+
+    @Test
+    @DisplayName("Threefold Repetition")
+    public void threefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int round = 1; round <= 2; round++) {
+            Assertions.assertEquals(round - 1, game.repetitions());
+            shuffleKnights(game);
+            Assertions.assertEquals(4 * round, game.getHalfmoveClock());
+        }
+        Assertions.assertEquals(2, game.repetitions());
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW, game.getStatus());
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW, game.getStatus(ChessGame.TeamColor.BLACK));
+
+        //Copies keep the positions that led to them
+        ChessGame copy = new ChessGame(game);
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW, copy.getStatus());
+
+        game.undoMove();
+        game.undoMove();
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getStatus());
+        Assertions.assertEquals(1, new ChessGame(game).repetitions());
+        Assertions.assertEquals(6, game.getHalfmoveClock());
+    }
+
+    @Test
+    @DisplayName("Fifty Move Clock Follows Moves")
+    public void fiftyMoveClockFollowsMoves() throws InvalidMoveException {
+        ChessGame game = Fen.toGame("4k3/8/8/8/8/8/4P3/4K2N w - - 99 70");
+        game.makeMove(new ChessMove(new ChessPosition(1, 8), new ChessPosition(3, 7), null));
+        Assertions.assertEquals(100, game.getHalfmoveClock());
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW, game.getStatus());
+        game.undoMove();
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getStatus());
+
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        Assertions.assertEquals(0, game.getHalfmoveClock());
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getStatus());
+        game.undoMove();
+
+        game.doNullMove();
+        Assertions.assertEquals(0, game.repetitions());
+        game.undoMove();
+        Assertions.assertEquals(99, game.getHalfmoveClock());
+    }
+
+    private static void shuffleKnights(ChessGame game) throws InvalidMoveException {
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null));
+        game.makeMove(new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null));
+    }
+}
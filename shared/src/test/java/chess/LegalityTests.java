@@ -0,0 +1,95 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Checks that {@link ChessGame#isLegal(ChessMove)} and {@link ChessGame#legalMoves(ChessGame.TeamColor)}
+ * agree with the moves {@link ChessGame#validMoves(ChessPosition)} lists, in each position
+ * and in every position one move later.
+ */
+public class LegalityTests {
+
+    private static final ChessPiece.PieceType[] PROMOTIONS = {null, ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.KING, ChessPiece.PieceType.PAWN};
+
+    @ParameterizedTest(name = "{0}")
+    @DisplayName("Legality Check Matches Valid Moves")
+    @CsvSource(delimiter = ';', value = {
+            "Start Position;     rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "Kiwipete;           r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "En Passant Pins;    8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "Castling Promotion; r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "Live En Passant;    rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+    })
+    public void isLegalMatchesValidMoves(String name, String fen) {
+        ChessGame game = Fen.toGame(fen);
+        assertLegalityMatches(name, game);
+
+        MoveBuffer moves = new MoveBuffer();
+        long pieces = game.getBoard().occupancy(Bitboards.colorIndex(game.getTeamTurn()));
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            game.validMoves(square, moves);
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            game.doMove(moves.get(i));
+            assertLegalityMatches(name + " after " + Move.toString(moves.get(i)), game);
+            game.undoMove();
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @DisplayName("Legal Move Generator Matches Valid Moves")
+    @CsvSource(delimiter = ';', value = {
+            "Start Position;     rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "Kiwipete;           r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "En Passant Pins;    8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "Double Check;       4k3/8/8/8/1b6/8/4r3/R3K2R w KQ - 0 1",
+            "Pinned En Passant;  8/8/8/K2pP2r/8/8/8/4k3 w - d6 0 1",
+            "No King;            8/8/8/3p4/8/8/2N5/8 w - - 0 1",
+    })
+    public void legalMovesMatchValidMoves(String name, String fen) {
+        ChessGame game = Fen.toGame(fen);
+        for (ChessGame.TeamColor team : ChessGame.TeamColor.values()) {
+            Set<ChessMove> valid = new HashSet<>();
+            for (int square = 0; square < 64; square++) {
+                ChessPiece piece = game.getBoard().getPiece(square);
+                if (piece != null && piece.getTeamColor() == team) {
+                    valid.addAll(game.validMoves(Bitboards.position(square)));
+                }
+            }
+            Collection<ChessMove> legal = game.legalMoves(team);
+            Assertions.assertEquals(valid, new HashSet<>(legal), "Wrong legal moves for " + team + " in " + name);
+            Assertions.assertEquals(valid.size(), legal.size(), "Duplicate legal moves for " + team + " in " + name);
+            Assertions.assertEquals(!valid.isEmpty(), game.hasAnyLegalMove(team),
+                    "Wrong legal move check for " + team + " in " + name);
+        }
+    }
+
+    private static void assertLegalityMatches(String name, ChessGame game) {
+        for (int from = 0; from < 64; from++) {
+            ChessPosition start = Bitboards.position(from);
+            ChessPiece piece = game.getBoard().getPiece(start);
+            Set<ChessMove> valid = new HashSet<>();
+            if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                valid.addAll(game.validMoves(start));
+            }
+            for (int to = 0; to < 64; to++) {
+                for (ChessPiece.PieceType promotion : PROMOTIONS) {
+                    ChessMove move = new ChessMove(start, Bitboards.position(to), promotion);
+                    Assertions.assertEquals(valid.contains(move), game.isLegal(move),
+                            "Wrong legality for " + move + " in " + name);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks move generation against published perft node counts
+ * (<a href="https://www.chessprogramming.org/Perft_Results">Perft Results</a>).
+ * When a count is wrong the divide counts for the position are printed, so the
+ * bad branch can be found by comparing them with another engine's output.
+ */
+public class PerftTests {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(3);
+
+    @AfterAll
+    public static void shutDown() {
+        POOL.shutdown();
+    }
+
+    @ParameterizedTest(name = "{0} depth {2}")
+    @DisplayName("Perft Node Counts")
+    @CsvSource(delimiter = ';', value = {
+            "Start Position;     rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1;          5; 4865609",
+            "Kiwipete;           r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1; 4; 4085603",
+            "En Passant Pins;    8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1;                           6; 11030083",
+            "Castling Promotion; r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1;   4; 422333",
+            "Mirrored Castling;  r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1;   4; 422333",
+            "Discovered Check;   rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8;         4; 2103487",
+            "Symmetric Middle;   r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10; 4; 3894594",
+    })
+    public void perft(String name, String fen, int depth, long expected) {
+        long actual = Perft.perft(Fen.toGame(fen), depth);
+        if (actual != expected) {
+            System.out.println("Divide for " + name + " (" + fen + ") at depth " + depth + ":");
+            for (Map.Entry<String, Long> entry : Perft.divide(Fen.toGame(fen), depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+            }
+        }
+        Assertions.assertEquals(expected, actual, "Wrong perft count for " + name + " at depth " + depth);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @DisplayName("Perft Leaves Game Unchanged")
+    @CsvSource(delimiter = ';', value = {
+            "Kiwipete; r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "Live En Passant; rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+    })
+    public void perftRestoresGame(String name, String fen) {
+        ChessGame game = Fen.toGame(fen);
+        ChessBoard before = new ChessBoard(game.getBoard());
+        long key = game.positionKey();
+
+        Perft.perft(game, 3);
+
+        Assertions.assertEquals(before, game.getBoard(), "Board changed after perft on " + name);
+        Assertions.assertEquals(key, game.positionKey(), "Position key changed after perft on " + name);
+        Assertions.assertEquals(Fen.toGame(fen).getTeamTurn(), game.getTeamTurn(), "Turn changed after perft on " + name);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @DisplayName("Divide Sums To Perft")
+    @CsvSource(delimiter = ';', value = {
+            "Start Position; rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1; 20",
+            "Kiwipete; r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1; 48",
+    })
+    public void divideMatchesPerft(String name, String fen, int rootMoves) {
+        Map<String, Long> divide = Perft.divide(Fen.toGame(fen), 3);
+        Assertions.assertEquals(rootMoves, divide.size(), "Wrong number of root moves for " + name);
+        Assertions.assertEquals(Perft.perft(Fen.toGame(fen), 3),
+                divide.values().stream().mapToLong(Long::longValue).sum(), "Divide does not add up for " + name);
+    }
+
+    @ParameterizedTest(name = "{0} depth {2}")
+    @DisplayName("Parallel Perft Node Counts")
+    @CsvSource(delimiter = ';', value = {
+            "Kiwipete;        r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1; 4; 4085603",
+            "En Passant Pins; 8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1;                           6; 11030083",
+            "Start Position;  rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1;          5; 4865609",
+    })
+    public void parallelPerft(String name, String fen, int depth, long expected) {
+        ChessGame game = Fen.toGame(fen);
+        long key = game.positionKey();
+        Assertions.assertEquals(expected, Perft.perft(game, depth, POOL, null), "Wrong parallel count for " + name);
+        Assertions.assertEquals(expected, Perft.perft(game, depth, POOL, new PerftTable(4)),
+                "Wrong hashed count for " + name);
+        Assertions.assertEquals(key, game.positionKey(), "Position changed after parallel perft on " + name);
+    }
+
+    @Test
+    @DisplayName("Parallel Divide Matches Divide")
+    public void parallelDivideMatchesDivide() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        Assertions.assertEquals(Perft.divide(Fen.toGame(fen), 3),
+                Perft.divide(Fen.toGame(fen), 3, POOL, new PerftTable(1)));
+    }
+
+    @Test
+    @DisplayName("Table Keeps Counts By Depth")
+    public void tableKeepsCountsByDepth() {
+        PerftTable table = new PerftTable(1);
+        Assertions.assertEquals(-1, table.probe(42, 3));
+        table.store(42, 3, 8902);
+        Assertions.assertEquals(8902, table.probe(42, 3));
+        Assertions.assertEquals(-1, table.probe(42, 2));
+
+        //A shallower count for another position in the same slot does not push out a deeper one
+        long other = 42 + (1L << 40);
+        table.store(other, 2, 400);
+        Assertions.assertEquals(8902, table.probe(42, 3));
+        Assertions.assertEquals(-1, table.probe(other, 2));
+        table.store(other, 4, 197281);
+        Assertions.assertEquals(197281, table.probe(other, 4));
+
+        table.clear();
+        Assertions.assertEquals(-1, table.probe(other, 4));
+    }
+}
@@ -0,0 +1,103 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that SAN moves are matched to the right legal move, and that PGN games are read
+ * with their tags and main line while comments and variations are skipped.
+ */
+public class PgnTests {
+
+    @ParameterizedTest(name = "{1}")
+    @CsvSource(delimiter = ';', value = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1; e4; e2e4",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1; Nf3; g1f3",
+            "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2; exd5; e4d5",
+            "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1; O-O; e1g1",
+            "r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1; O-O-O; e8c8",
+            "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1; Rab1; a1b1",
+            "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1; Rhf1+; h1f1",
+            "4k3/8/8/8/R7/8/8/R3K3 w - - 0 1; R1a2; a1a2",
+            "4k3/8/8/8/R7/8/8/R3K3 w - - 0 1; R4a2; a4a2",
+            "1n2k3/P7/8/8/8/8/8/4K3 w - - 0 1; axb8=N; a7b8n",
+            "4k3/P7/8/8/8/8/8/4K3 w - - 0 1; a8=Q+; a7a8q",
+            "4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1; exd6; e5d6",
+            "rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq - 0 2; Qh4#; d8h4",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1; Nc3!?; b1c3",
+    })
+    public void parsesSan(String fen, String san, String expected) {
+        Assertions.assertEquals(expected, Move.toString(San.parse(Fen.toGame(fen), san)));
+    }
+
+    @ParameterizedTest(name = "{1}")
+    @CsvSource(delimiter = ';', value = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1; e5",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1; O-O",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1; Zf3",
+            "4k3/8/8/8/R7/8/8/R3K3 w - - 0 1; Ra2",
+            "4k3/P7/8/8/8/8/8/4K3 w - - 0 1; a8",
+    })
+    public void rejectsBadSan(String fen, String san) {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.parse(Fen.toGame(fen), san));
+    }
+
+    @Test
+    @DisplayName("Reads Games")
+    public void readsGames() throws IOException {
+        String pgn = """
+                [Event "Casual"]
+                [White "Anderssen"]
+                [Black "Kieseritzky"]
+                [Result "1-0"]
+
+                1. e4 e5 {the King's Gambit follows} 2. f4 exf4 (2... d5 3. exd5) 3. Bc4 $1 Qh4+ 4. Kf1
+                ; a line comment 5. Nf3
+                b5 1-0
+
+                [Event "Second"]
+
+                1.d4 d5 2.c4 1/2-1/2
+                1. Nf3 *
+                """;
+        List<Pgn.Game> games = new ArrayList<>();
+        Pgn.read(new StringReader(pgn), games::add);
+
+        Assertions.assertEquals(3, games.size());
+        Assertions.assertEquals("Anderssen", games.getFirst().tags().get("White"));
+        Assertions.assertEquals(List.of("e4", "e5", "f4", "exf4", "Bc4", "Qh4+", "Kf1", "b5"), games.getFirst().moves());
+        Assertions.assertEquals("1-0", games.getFirst().result());
+        Assertions.assertEquals(List.of("d4", "d5", "c4"), games.get(1).moves());
+        Assertions.assertEquals("1/2-1/2", games.get(1).result());
+        Assertions.assertEquals(List.of("Nf3"), games.get(2).moves());
+        Assertions.assertTrue(games.get(2).tags().isEmpty());
+
+        ChessGame end = Pgn.replay(games.getFirst(), (position, move) -> { });
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, end.getTeamTurn());
+        Assertions.assertEquals(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                end.getBoard().getPiece(new ChessPosition(1, 6)));
+    }
+
+    @Test
+    @DisplayName("Unclosed Variation Ends With Its Game")
+    public void unclosedVariationEndsWithItsGame() throws IOException {
+        String pgn = "[Event \"a\"]\n\n1. e4 (1. d4 d5 *\n\n[Event \"b\"]\n\n1. e4 e5 1-0";
+        List<Pgn.Game> games = new ArrayList<>();
+        Pgn.read(new StringReader(pgn), games::add);
+
+        Assertions.assertEquals(2, games.size());
+        Assertions.assertEquals(List.of("e4"), games.getFirst().moves());
+        Assertions.assertEquals("*", games.getFirst().result());
+        Assertions.assertEquals("b", games.get(1).tags().get("Event"));
+        Assertions.assertEquals(List.of("e4", "e5"), games.get(1).moves());
+        Assertions.assertEquals("1-0", games.get(1).result());
+    }
+}
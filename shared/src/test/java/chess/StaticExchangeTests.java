@@ -0,0 +1,75 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Checks static exchange evaluation against exchanges worked out by hand, and that the
+ * capture generator finds exactly the captures and promotions among the legal moves.
+ */
+public class StaticExchangeTests {
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = ';', value = {
+            "Free Knight; 4k3/8/8/3n4/8/8/3Q4/4K3 w - - 0 1; d2; d5; 320",
+            "Queen Takes Defended Knight; 4k3/8/4p3/3n4/8/8/3Q4/4K3 w - - 0 1; d2; d5; -580",
+            "Queen Behind Rook Wins Pawn; 3rk3/8/8/3p4/8/8/3R4/3QK3 w - - 0 1; d2; d5; 100",
+            "Doubled Rooks Defend Pawn; 3rk3/3r4/8/3p4/8/8/3R4/3RK3 w - - 0 1; d2; d5; -400",
+            "En Passant; 4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1; e5; d6; 100",
+            "King Takes Back Rook; 3rk3/8/8/8/8/8/8/3NK3 b - - 0 1; d8; d1; -180",
+            "King Cannot Take Defended Rook; 3rk3/8/8/7b/8/8/8/3NK3 b - - 0 1; d8; d1; 320",
+            "Promotion Captures Rook And Is Taken; 3rk3/4P3/8/8/8/8/8/4K3 w - - 0 1; e7; d8; 400",
+    })
+    public void staticExchange(String name, String fen, String from, String to, int expected) {
+        ChessGame game = Fen.toGame(fen);
+        int move = Move.NONE;
+        MoveBuffer moves = new MoveBuffer();
+        game.legalMoves(game.getTeamTurn(), moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int candidate = moves.get(i);
+            if (Move.from(candidate) == square(from) && Move.to(candidate) == square(to)
+                    && (!Move.isPromotion(candidate) || Move.promotion(candidate) == ChessPiece.PieceType.QUEEN)) {
+                move = candidate;
+            }
+        }
+        Assertions.assertNotEquals(Move.NONE, move, name + ": move is not legal");
+        Assertions.assertEquals(expected, game.getBoard().staticExchange(move), name);
+    }
+
+    @Test
+    @DisplayName("Legal Captures Match Legal Moves")
+    public void legalCapturesMatchLegalMoves() {
+        String[] fens = {
+                Fen.START_POSITION,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "8/8/8/K2pP2r/8/8/8/4k3 w - d6 0 1",
+        };
+        for (String fen : fens) {
+            ChessGame game = Fen.toGame(fen);
+            MoveBuffer all = new MoveBuffer();
+            game.legalMoves(game.getTeamTurn(), all);
+            MoveBuffer expected = new MoveBuffer();
+            for (int i = 0; i < all.size(); i++) {
+                if (Move.isCapture(all.get(i)) || Move.isPromotion(all.get(i))) {
+                    expected.add(all.get(i));
+                }
+            }
+            MoveBuffer captures = new MoveBuffer();
+            game.legalCaptures(game.getTeamTurn(), captures);
+            Assertions.assertEquals(expected.size(), captures.size(), fen);
+            for (int i = 0; i < captures.size(); i++) {
+                Assertions.assertTrue(expected.contains(captures.get(i)), fen + ": " + Move.toString(captures.get(i)));
+            }
+        }
+    }
+
+    private static int square(String name) {
+        return (name.charAt(1) - '1') * 8 + (name.charAt(0) - 'a');
+    }
+}
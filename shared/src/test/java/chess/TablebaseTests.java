@@ -0,0 +1,215 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Checks the generated tables against known endgame results, and every result against
+ * the results of the positions its moves lead to, found through the full move generator.
+ */
+public class TablebaseTests {
+
+    @TempDir
+    static Path directory;
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        TablebaseGenerator.generate(directory);
+        tablebase = Tablebase.open(directory);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = ';', value = {
+            "k7/8/1K6/8/8/8/8/6Q1 w - - 0 1; WIN;  1",
+            "k6Q/8/1K6/8/8/8/8/8 b - - 0 1;  LOSS; 0",
+            "k7/8/1K6/8/8/8/8/1Q6 w - - 0 1; WIN;  3",
+            "k7/8/1K6/8/8/8/8/7R w - - 0 1;  WIN;  1",
+            "4k3/4P3/4K3/8/8/8/8/8 b - - 0 1; DRAW; 0",
+            "k7/8/K7/P7/8/8/8/8 w - - 0 1;   DRAW; 0",
+            "4k3/8/8/8/8/8/8/2B1K3 w - - 0 1; DRAW; 0",
+            "8/8/8/8/8/8/8/K6k w - - 0 1;    DRAW; 0",
+            "8/8/8/8/8/4k3/8/R3K3 b - - 0 1; LOSS; ",
+            "4k3/8/4K3/4P3/8/8/8/8 w - - 0 1; WIN; ",
+            "4k3/8/4K3/4P3/8/8/8/8 b - - 0 1; LOSS; ",
+            "8/8/8/8/4p3/4k3/8/4K3 b - - 0 1; WIN; ",
+    })
+    public void knownResults(String fen, Tablebase.Outcome outcome, Integer plies) {
+        Tablebase.Result result = tablebase.probe(Fen.toGame(fen));
+        Assertions.assertNotNull(result, "Not in the tables: " + fen);
+        Assertions.assertEquals(outcome, result.outcome(), "Wrong result for " + fen);
+        if (plies != null) {
+            Assertions.assertEquals(plies, result.plies(), "Wrong distance to mate for " + fen);
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = ';', value = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "4k3/8/8/8/8/8/8/4K2R w K - 0 1",
+            "4k3/8/8/8/8/8/8/2NNK3 w - - 0 1",
+    })
+    public void positionsOutsideTheTables(String fen) {
+        Assertions.assertNull(tablebase.probe(Fen.toGame(fen)));
+    }
+
+    @Test
+    @DisplayName("Longest Mates Match Published Lengths")
+    public void longestMates() {
+        byte[][] solved = new byte[Tablebase.PIECES.length][];
+        int[] longest = new int[Tablebase.PIECES.length];
+        for (int i = 0; i < Tablebase.PIECES.length; i++) {
+            solved[i] = TablebaseGenerator.solve(Tablebase.PIECES[i], solved);
+            for (byte entry : solved[i]) {
+                //Odd distances are wins for the team to move
+                int plies = (entry & 0xFF) - 1;
+                if ((plies & 1) == 1) {
+                    longest[i] = Math.max(longest[i], plies);
+                }
+            }
+        }
+        //Mate in 10 moves with the queen and 16 with the rook, with the winning team to move
+        Assertions.assertEquals(19, longest[Tablebase.table(ChessPiece.PieceType.QUEEN)]);
+        Assertions.assertEquals(31, longest[Tablebase.table(ChessPiece.PieceType.ROOK)]);
+    }
+
+    @Test
+    @DisplayName("Results Follow From Moves")
+    public void resultsFollowFromMoves() {
+        SplittableRandom random = new SplittableRandom(23);
+        String[] pieces = {"Q", "R", "P"};
+        int checked = 0;
+        while (checked < 3000) {
+            String piece = pieces[checked % pieces.length];
+            boolean whiteStrong = random.nextBoolean();
+            int strongKing = random.nextInt(64);
+            int weakKing = random.nextInt(64);
+            int pieceSquare = random.nextInt(piece.equals("P") ? 8 : 0, piece.equals("P") ? 56 : 64);
+            if (strongKing == weakKing || pieceSquare == strongKing || pieceSquare == weakKing
+                    || (Bitboards.KING_ATTACKS[strongKing] & Bitboards.bit(weakKing)) != 0) {
+                continue;
+            }
+            char[] squares = new char[64];
+            squares[strongKing] = whiteStrong ? 'K' : 'k';
+            squares[weakKing] = whiteStrong ? 'k' : 'K';
+            squares[pieceSquare] = whiteStrong ? piece.charAt(0) : Character.toLowerCase(piece.charAt(0));
+            String fen = placement(squares) + (random.nextBoolean() ? " w" : " b") + " - - 0 1";
+            ChessGame game = Fen.toGame(fen);
+            ChessGame.TeamColor waiting = (game.getTeamTurn() == ChessGame.TeamColor.WHITE)
+                    ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            if (game.isInCheck(waiting)) {
+                continue;
+            }
+            checkAgainstMoves(game, fen);
+            checked++;
+        }
+    }
+
+    @Test
+    @DisplayName("Status Comes From Tables")
+    public void statusComesFromTables() {
+        ChessGame mated = Fen.toGame("k6Q/8/1K6/8/8/8/8/8 b - - 0 1");
+        mated.setTablebase(tablebase);
+        Assertions.assertEquals(ChessGame.GameStatus.CHECKMATE, mated.getStatus());
+
+        ChessGame stalemated = Fen.toGame("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1");
+        stalemated.setTablebase(tablebase);
+        Assertions.assertEquals(ChessGame.GameStatus.STALEMATE, stalemated.getStatus());
+
+        ChessGame check = new ChessGame(Fen.toGame("k7/8/1K6/8/8/8/8/7R b - - 0 1"));
+        Assertions.assertNull(check.getTablebase());
+        check.setTablebase(tablebase);
+        Assertions.assertSame(tablebase, new ChessGame(check).getTablebase());
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, check.getStatus());
+    }
+
+    @Test
+    @DisplayName("Bad File Is Rejected")
+    public void badFileIsRejected(@TempDir Path other) throws IOException {
+        Assertions.assertThrows(IOException.class, () -> Tablebase.open(other));
+        Files.write(other.resolve(Tablebase.fileName(ChessPiece.PieceType.ROOK)), new byte[100]);
+        Assertions.assertThrows(IOException.class, () -> Tablebase.open(other));
+    }
+
+    /**
+     * A win in n must have a move to a loss in n - 1 and none to a shorter loss; a loss in
+     * n must have only moves to wins in at most n - 1, one of them in n - 1; a draw must
+     * have no move to a loss and some move that is not to a win.
+     */
+    private static void checkAgainstMoves(ChessGame game, String fen) {
+        Tablebase.Result result = tablebase.probe(game);
+        Assertions.assertNotNull(result, "Not in the tables: " + fen);
+        MoveBuffer moves = new MoveBuffer();
+        game.legalMoves(game.getTeamTurn(), moves);
+        int shortestLoss = Integer.MAX_VALUE;
+        int longestWin = -1;
+        boolean allWins = true;
+        for (int i = 0; i < moves.size(); i++) {
+            game.doMove(moves.get(i));
+            Tablebase.Result next = tablebase.probe(game);
+            game.undoMove();
+            Assertions.assertNotNull(next);
+            if (next.outcome() == Tablebase.Outcome.LOSS) {
+                shortestLoss = Math.min(shortestLoss, next.plies());
+            }
+            if (next.outcome() == Tablebase.Outcome.WIN) {
+                longestWin = Math.max(longestWin, next.plies());
+            } else {
+                allWins = false;
+            }
+        }
+        switch (result.outcome()) {
+            case WIN -> Assertions.assertEquals(result.plies() - 1, shortestLoss, "Wrong win for " + fen);
+            case LOSS -> {
+                if (moves.isEmpty()) {
+                    Assertions.assertTrue(game.isInCheck(game.getTeamTurn()), "Stalemate scored as a loss: " + fen);
+                    Assertions.assertEquals(0, result.plies(), fen);
+                } else {
+                    Assertions.assertTrue(allWins, "Loss with a move that does not lose: " + fen);
+                    Assertions.assertEquals(result.plies() - 1, longestWin, "Wrong loss for " + fen);
+                }
+            }
+            case DRAW -> {
+                Assertions.assertEquals(Integer.MAX_VALUE, shortestLoss, "Draw with a winning move: " + fen);
+                Assertions.assertTrue(moves.isEmpty() ? !game.isInCheck(game.getTeamTurn()) : !allWins,
+                        "Draw that is lost: " + fen);
+            }
+        }
+    }
+
+    private static String placement(char[] squares) {
+        StringBuilder placement = new StringBuilder();
+        for (int row = 7; row >= 0; row--) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                char piece = squares[row * 8 + column];
+                if (piece == 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    placement.append(empty);
+                    empty = 0;
+                }
+                placement.append(piece);
+            }
+            if (empty > 0) {
+                placement.append(empty);
+            }
+            if (row > 0) {
+                placement.append('/');
+            }
+        }
+        return placement.toString();
+    }
+}
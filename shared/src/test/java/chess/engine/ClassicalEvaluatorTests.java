@@ -0,0 +1,67 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Fen;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that the scores the board keeps as pieces move match the scores of the same
+ * position set up from scratch, and that the evaluation treats both teams alike.
+ */
+public class ClassicalEvaluatorTests {
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 4})
+    @DisplayName("Incremental Scores Match Scratch")
+    public void incrementalScoresMatchScratch(int position) {
+        EvaluatorTesting.walkTwoPlies(Fen.toGame(EvaluatorTesting.POSITIONS[position]),
+                game -> assertMatchesScratch(game.getBoard()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 4})
+    @DisplayName("Mirrored Position Scores The Same")
+    public void mirroredPositionScoresTheSame(int position) {
+        ClassicalEvaluator evaluator = new ClassicalEvaluator();
+        String fen = EvaluatorTesting.POSITIONS[position];
+        int score = evaluator.evaluate(Fen.toGame(fen));
+        int mirrored = evaluator.evaluate(Fen.toGame(EvaluatorTesting.mirror(fen)));
+        Assertions.assertEquals(score, mirrored, fen);
+    }
+
+    @Test
+    @DisplayName("Start Position Is Even")
+    public void startPositionIsEven() {
+        Assertions.assertEquals(0, new ClassicalEvaluator().evaluate(Fen.toGame(Fen.START_POSITION)));
+        Assertions.assertEquals(ChessBoard.FULL_PHASE, Fen.toGame(Fen.START_POSITION).getBoard().phase());
+    }
+
+    @Test
+    @DisplayName("Endgame King Prefers Center")
+    public void endgameKingPrefersCenter() {
+        ClassicalEvaluator evaluator = new ClassicalEvaluator();
+        int center = evaluator.evaluate(Fen.toGame("4k3/p7/8/8/4K3/8/P7/8 w - - 0 1"));
+        int corner = evaluator.evaluate(Fen.toGame("4k3/p7/8/8/8/8/P7/7K w - - 0 1"));
+        Assertions.assertTrue(center > corner, center + " in the center, " + corner + " in the corner");
+    }
+
+    private static void assertMatchesScratch(ChessBoard board) {
+        ChessBoard scratch = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece != null) {
+                scratch.addPiece(new ChessPosition(square / 8 + 1, square % 8 + 1), piece);
+            }
+        }
+        Assertions.assertEquals(scratch.middlegameScore(), board.middlegameScore());
+        Assertions.assertEquals(scratch.endgameScore(), board.endgameScore());
+        Assertions.assertEquals(scratch.phase(), board.phase());
+        Assertions.assertEquals(scratch.pawnKey(), board.pawnKey());
+    }
+}
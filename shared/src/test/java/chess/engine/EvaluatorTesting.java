@@ -0,0 +1,75 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.MoveBuffer;
+
+import java.util.function.Consumer;
+
+/**
+ * Positions and walks through them shared by the evaluator tests
+ */
+final class EvaluatorTesting {
+
+    static final String[] POSITIONS = {
+            Fen.START_POSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+    };
+
+    private EvaluatorTesting() {
+    }
+
+    /**
+     * Runs a check on a position, on every position one and two moves from it, and on the
+     * position again once every move has been taken back
+     */
+    static void walkTwoPlies(ChessGame game, Consumer<ChessGame> check) {
+        check.accept(game);
+        MoveBuffer moves = new MoveBuffer();
+        game.legalMoves(game.getTeamTurn(), moves);
+        for (int i = 0; i < moves.size(); i++) {
+            game.doMove(moves.get(i));
+            check.accept(game);
+            MoveBuffer replies = new MoveBuffer();
+            game.legalMoves(game.getTeamTurn(), replies);
+            for (int j = 0; j < replies.size(); j++) {
+                game.doMove(replies.get(j));
+                check.accept(game);
+                game.undoMove();
+            }
+            game.undoMove();
+        }
+        check.accept(game);
+    }
+
+    /**
+     * Turns a position upside down and swaps the teams, so white's position becomes black's
+     */
+    static String mirror(String fen) {
+        String[] fields = fen.split(" ");
+        String[] rows = fields[0].split("/");
+        StringBuilder placement = new StringBuilder();
+        for (int row = rows.length - 1; row >= 0; row--) {
+            placement.append(swapCase(rows[row]));
+            if (row > 0) {
+                placement.append('/');
+            }
+        }
+        String turn = fields[1].equals("w") ? "b" : "w";
+        String castling = fields[2].equals("-") ? "-" : swapCase(fields[2]);
+        String enPassant = fields[3].equals("-") ? "-"
+                : fields[3].charAt(0) + String.valueOf(9 - (fields[3].charAt(1) - '0'));
+        return String.join(" ", placement, turn, castling, enPassant, fields[4], fields[5]);
+    }
+
+    private static String swapCase(String text) {
+        StringBuilder swapped = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            swapped.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        }
+        return swapped.toString();
+    }
+}
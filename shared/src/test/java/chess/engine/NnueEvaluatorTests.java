@@ -0,0 +1,169 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Checks that updating the accumulators piece by piece scores positions exactly as
+ * summing every piece afresh does, and that weights files read back as written.
+ */
+public class NnueEvaluatorTests {
+
+    private static final NnueNetwork NETWORK = NnueNetwork.random(64, 1);
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 4})
+    @DisplayName("Incremental Matches Refresh")
+    public void incrementalMatchesRefresh(int position) {
+        NnueEvaluator incremental = new NnueEvaluator(NETWORK);
+        EvaluatorTesting.walkTwoPlies(Fen.toGame(EvaluatorTesting.POSITIONS[position]),
+                game -> assertMatchesRefresh(incremental, game));
+    }
+
+    @Test
+    @DisplayName("One Evaluator Scores Unrelated Positions")
+    public void oneEvaluatorScoresUnrelatedPositions() {
+        //Each position differs from the one before by more pieces than are worth updating
+        //one at a time, or, for a mirrored position, by nearly every piece
+        NnueEvaluator reused = new NnueEvaluator(NETWORK);
+        for (String fen : EvaluatorTesting.POSITIONS) {
+            ChessGame game = Fen.toGame(fen);
+            ChessGame mirrored = Fen.toGame(EvaluatorTesting.mirror(fen));
+            assertMatchesRefresh(reused, game);
+            assertMatchesRefresh(reused, mirrored);
+            Assertions.assertEquals(reused.evaluate(game), reused.evaluate(mirrored), fen);
+        }
+    }
+
+    @Test
+    @DisplayName("Updates Up To The Refresh Threshold")
+    public void updatesUpToTheRefreshThreshold() {
+        //Taking off one piece at a time, then putting them back, changes the board by
+        //every count of pieces from 1 to 30 since the evaluator last saw the start position
+        ChessGame start = Fen.toGame(Fen.START_POSITION);
+        NnueEvaluator incremental = new NnueEvaluator(NETWORK);
+        String[] rows = Fen.START_POSITION.split(" ")[0].split("/");
+        for (int removed = 1; removed <= 30; removed++) {
+            incremental.evaluate(start);
+            assertMatchesRefresh(incremental, Fen.toGame(removePieces(rows, removed) + " w - - 0 1"));
+        }
+    }
+
+    @Test
+    @DisplayName("Weights File Reads Back")
+    public void weightsFileReadsBack(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("test.nnue");
+        NETWORK.save(file);
+        NnueNetwork loaded = NnueNetwork.load(file);
+        Assertions.assertEquals(NETWORK.hiddenSize(), loaded.hiddenSize());
+        ChessGame game = Fen.toGame("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        Assertions.assertEquals(new NnueEvaluator(NETWORK).evaluate(game), new NnueEvaluator(loaded).evaluate(game));
+    }
+
+    @Test
+    @DisplayName("Bad Weights Are Rejected")
+    public void badWeightsAreRejected(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("bad.nnue");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        Assertions.assertThrows(IOException.class, () -> NnueNetwork.load(file));
+
+        NETWORK.save(file);
+        byte[] truncated = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(truncated, truncated.length - 2));
+        Assertions.assertThrows(IOException.class, () -> NnueNetwork.load(file));
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new NnueNetwork(2, new short[10], new short[2], new short[4], 0));
+
+        //32 pieces each adding 1024 reach 32768, one past what a 16-bit accumulator holds
+        short[] featureWeights = new short[NnueNetwork.INPUTS];
+        Arrays.fill(featureWeights, (short) 1024);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new NnueNetwork(1, featureWeights, new short[1], new short[2], 0));
+        new NnueNetwork(1, featureWeights, new short[]{-1}, new short[2], 0);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new NnueNetwork(1, featureWeights, new short[]{1}, new short[2], 0));
+    }
+
+    @Test
+    @DisplayName("Large Outputs Stay Below Mate Scores")
+    public void largeOutputsStayBelowMateScores() {
+        ChessGame game = Fen.toGame(Fen.START_POSITION);
+        for (short weight : new short[]{Short.MAX_VALUE, -Short.MAX_VALUE}) {
+            //Every hidden value at its largest, each weighted as heavily as 16 bits allow
+            short[] hiddenBiases = new short[16];
+            Arrays.fill(hiddenBiases, (short) NnueNetwork.HIDDEN_SCALE);
+            short[] outputWeights = new short[32];
+            Arrays.fill(outputWeights, weight);
+            NnueNetwork network = new NnueNetwork(16, new short[NnueNetwork.INPUTS * 16], hiddenBiases,
+                    outputWeights, 0);
+            Assertions.assertEquals(Integer.signum(weight) * NnueEvaluator.MAX_SCORE,
+                    new NnueEvaluator(network).evaluate(game));
+        }
+    }
+
+    @Test
+    @DisplayName("Searches With Network")
+    public void searchesWithNetwork() {
+        SearchResult result = new Search(Fen.toGame("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), new NnueEvaluator(NETWORK))
+                .search(SearchLimits.depth(3));
+        Assertions.assertEquals(Search.MATE - 1, result.score());
+    }
+
+    /**
+     * Empties squares of the start position from the a-file of white's back row onwards,
+     * passing over the kings
+     */
+    private static String removePieces(String[] rows, int count) {
+        char[][] board = new char[8][];
+        for (int row = 0; row < 8; row++) {
+            board[row] = rows[row].replace("8", "........").toCharArray();
+        }
+        int[] order = {7, 6, 1, 0};
+        for (int row : order) {
+            for (int column = 0; column < 8 && count > 0; column++) {
+                if (Character.toLowerCase(board[row][column]) != 'k') {
+                    board[row][column] = '.';
+                    count--;
+                }
+            }
+        }
+        StringBuilder placement = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (char square : board[row]) {
+                if (square == '.') {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    placement.append(empty);
+                    empty = 0;
+                }
+                placement.append(square);
+            }
+            if (empty > 0) {
+                placement.append(empty);
+            }
+            if (row < 7) {
+                placement.append('/');
+            }
+        }
+        return placement.toString();
+    }
+
+    private static void assertMatchesRefresh(NnueEvaluator incremental, ChessGame game) {
+        Assertions.assertEquals(new NnueEvaluator(NETWORK).evaluate(game), incremental.evaluate(game));
+    }
+}
@@ -0,0 +1,121 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.San;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that a book built from PGN games gives each position's moves with weights from
+ * the games' results, and that probes read them back from the mapped file.
+ */
+public class OpeningBookTests {
+
+    private static final String GAMES = """
+            1. e4 e5 1-0
+            1. e4 c5 1/2-1/2
+            1. d4 d5 1-0
+            1. e4 e5 0-1
+            1. e4 e5 2. Qh5 Ke7 3. Zz9 1-0
+            """;
+
+    @Test
+    @DisplayName("Weights Come From Results")
+    public void weightsComeFromResults(@TempDir Path directory) throws IOException {
+        try (OpeningBook book = build(directory)) {
+            //The game with an illegal move still counts up to that move
+            List<OpeningBook.Entry> start = book.probe(Fen.toGame(Fen.START_POSITION));
+            Assertions.assertEquals(List.of(
+                    new OpeningBook.Entry(move(2, 5, 4, 5), 5, 0),
+                    new OpeningBook.Entry(move(2, 4, 4, 4), 2, 0)), start);
+
+            ChessGame afterE4 = Fen.toGame(Fen.START_POSITION);
+            afterE4.doMove(San.parse(afterE4, "e4"));
+            List<OpeningBook.Entry> replies = book.probe(afterE4);
+            Assertions.assertEquals(List.of(
+                    new OpeningBook.Entry(move(7, 5, 5, 5), 2, 0),
+                    new OpeningBook.Entry(move(7, 3, 5, 3), 1, 0)), replies);
+        }
+    }
+
+    @Test
+    @DisplayName("Unknown Position Has No Moves")
+    public void unknownPositionHasNoMoves(@TempDir Path directory) throws IOException {
+        try (OpeningBook book = build(directory)) {
+            ChessGame game = Fen.toGame("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+            Assertions.assertTrue(book.probe(game).isEmpty());
+            Assertions.assertNull(book.choose(game, new Random(1)));
+        }
+    }
+
+    @Test
+    @DisplayName("Choice Is A Book Move")
+    public void choiceIsABookMove(@TempDir Path directory) throws IOException {
+        try (OpeningBook book = build(directory)) {
+            ChessGame game = Fen.toGame(Fen.START_POSITION);
+            Random random = new Random(7);
+            boolean sawE4 = false;
+            boolean sawD4 = false;
+            for (int i = 0; i < 100; i++) {
+                ChessMove chosen = book.choose(game, random);
+                sawE4 |= chosen.equals(move(2, 5, 4, 5));
+                sawD4 |= chosen.equals(move(2, 4, 4, 4));
+            }
+            Assertions.assertTrue(sawE4 && sawD4);
+        }
+    }
+
+    @Test
+    @DisplayName("Counts Survive Merging")
+    public void countsSurviveMerging(@TempDir Path directory) throws IOException {
+        //Enough games to fill the builder's records several times over
+        Path pgn = directory.resolve("games.pgn");
+        Files.writeString(pgn, GAMES.repeat(20_000));
+        OpeningBookBuilder builder = new OpeningBookBuilder(OpeningBookBuilder.DEFAULT_PLIES);
+        builder.addPgn(pgn);
+        Path file = directory.resolve("book.bin");
+        Assertions.assertEquals(5, builder.write(file));
+        try (OpeningBook book = OpeningBook.open(file)) {
+            //e4 counts 100000, above 16 bits, so every weight at the start is scaled by 0xFFFF / 100000
+            List<OpeningBook.Entry> start = book.probe(Fen.toGame(Fen.START_POSITION));
+            Assertions.assertEquals(List.of(
+                    new OpeningBook.Entry(move(2, 5, 4, 5), 0xFFFF, 0),
+                    new OpeningBook.Entry(move(2, 4, 4, 4), 26214, 0)), start);
+        }
+    }
+
+    @Test
+    @DisplayName("Partial Entry Is Rejected")
+    public void partialEntryIsRejected(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("bad.bin");
+        Files.write(file, new byte[OpeningBook.ENTRY_BYTES + 3]);
+        Assertions.assertThrows(IOException.class, () -> OpeningBook.open(file));
+    }
+
+    private static OpeningBook build(Path directory) throws IOException {
+        Path pgn = directory.resolve("games.pgn");
+        Files.writeString(pgn, GAMES);
+        OpeningBookBuilder builder = new OpeningBookBuilder(OpeningBookBuilder.DEFAULT_PLIES);
+        builder.addPgn(pgn);
+        Path file = directory.resolve("book.bin");
+        Assertions.assertEquals(5, builder.write(file));
+        OpeningBook book = OpeningBook.open(file);
+        Assertions.assertEquals(5, book.size());
+        return book;
+    }
+
+    private static ChessMove move(int fromRow, int fromColumn, int toRow, int toColumn) {
+        return new ChessMove(new ChessPosition(fromRow, fromColumn), new ChessPosition(toRow, toColumn), null);
+    }
+}
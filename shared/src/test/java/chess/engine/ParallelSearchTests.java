@@ -0,0 +1,54 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that searching on several threads finds the same forced wins as one thread
+ * and leaves the game it was given untouched.
+ */
+public class ParallelSearchTests {
+
+    @Test
+    @DisplayName("Finds Mate With Helpers")
+    public void findsMateWithHelpers() {
+        try (ParallelSearch search = new ParallelSearch(Fen.toGame("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), 4)) {
+            SearchResult result = search.search(SearchLimits.depth(4));
+            Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null), result.bestMove());
+            Assertions.assertEquals(Search.MATE - 1, result.score());
+        }
+    }
+
+    @Test
+    @DisplayName("Counts Every Thread")
+    public void countsEveryThread() throws InvalidMoveException {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        ChessGame game = Fen.toGame(fen);
+        long key = game.positionKey();
+        try (ParallelSearch search = new ParallelSearch(game, MaterialEvaluator::new, new TranspositionTable(8), 3)) {
+            //Iterations are reported with the main thread's own nodes only
+            List<SearchResult> iterations = new ArrayList<>();
+            SearchResult result = search.search(SearchLimits.depth(5), iterations::add);
+            Assertions.assertEquals(5, result.depth());
+            Assertions.assertTrue(result.nodes() > iterations.getLast().nodes(),
+                    "Helper nodes not counted: " + result.nodes() + " against " + iterations.getLast().nodes());
+            Assertions.assertEquals(key, game.positionKey(), "Search changed the game");
+            for (ChessMove move : result.principalVariation()) {
+                game.makeMove(move);
+            }
+
+            SearchResult timed = search.search(SearchLimits.millis(200));
+            Assertions.assertTrue(timed.millis() < 1000, "Searched for " + timed.millis() + " ms");
+            Assertions.assertNotNull(timed.bestMove());
+        }
+    }
+}
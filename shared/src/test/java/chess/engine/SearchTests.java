@@ -0,0 +1,211 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.InvalidMoveException;
+import chess.Tablebase;
+import chess.TablebaseGenerator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Checks that the search finds forced wins, handles finished games and keeps to its limits.
+ */
+public class SearchTests {
+
+    @Test
+    @DisplayName("Finds Mate In One")
+    public void findsMateInOne() {
+        SearchResult result = new Search(Fen.toGame("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1")).search(SearchLimits.depth(4));
+        Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null), result.bestMove());
+        Assertions.assertEquals(Search.MATE - 1, result.score());
+        Assertions.assertTrue(result.isMate());
+        Assertions.assertTrue(result.toString().contains("score mate 1"), result.toString());
+    }
+
+    @Test
+    @DisplayName("Wins Undefended Queen")
+    public void winsUndefendedQueen() {
+        SearchResult result = new Search(Fen.toGame("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1")).search(SearchLimits.depth(3));
+        Assertions.assertEquals(new ChessMove(new ChessPosition(2, 4), new ChessPosition(5, 4), null), result.bestMove());
+        Assertions.assertTrue(result.score() > 0, "Score should favor white: " + result);
+    }
+
+    @ParameterizedTest
+    @MethodSource("options")
+    @DisplayName("Finds Tactics With Any Heuristics")
+    public void findsTacticsWithAnyHeuristics(SearchOptions options) {
+        SearchResult mate = search("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", options, 5);
+        Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null), mate.bestMove());
+        Assertions.assertEquals(Search.MATE - 1, mate.score());
+
+        //Mate in two: the king takes away the escape squares, then the rook mates on the back row
+        SearchResult mateInTwo = search("k7/8/2K5/8/8/8/8/7R w - - 0 1", options, 6);
+        Assertions.assertEquals(Search.MATE - 3, mateInTwo.score(), mateInTwo.toString());
+
+        SearchResult queen = search("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1", options, 5);
+        Assertions.assertEquals(new ChessMove(new ChessPosition(2, 4), new ChessPosition(5, 4), null), queen.bestMove());
+    }
+
+    @Test
+    @DisplayName("Heuristics Search Fewer Nodes")
+    public void heuristicsSearchFewerNodes() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        SearchResult plain = search(fen, SearchOptions.NONE, 5);
+        SearchResult pruned = search(fen, SearchOptions.ALL, 5);
+        Assertions.assertTrue(pruned.nodes() < plain.nodes(), pruned.nodes() + " nodes with heuristics, "
+                + plain.nodes() + " without");
+    }
+
+    @Test
+    @DisplayName("Null Move Is Taken Back")
+    public void nullMoveIsTakenBack() {
+        ChessGame game = Fen.toGame("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 3");
+        long key = game.positionKey();
+        game.doNullMove();
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+        Assertions.assertNotEquals(key, game.positionKey(), "Passing should lose the en passant capture");
+        game.undoMove();
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        Assertions.assertEquals(key, game.positionKey());
+    }
+
+    private static Stream<SearchOptions> options() {
+        return Stream.of(SearchOptions.ALL, SearchOptions.NONE, SearchOptions.ALL.withNullMove(false),
+                SearchOptions.ALL.withLateMoveReductions(false), SearchOptions.ALL.withFutility(false),
+                SearchOptions.ALL.withKillers(false), SearchOptions.ALL.withHistory(false));
+    }
+
+    private static SearchResult search(String fen, SearchOptions options, int depth) {
+        return new Search(Fen.toGame(fen), new MaterialEvaluator(), new TranspositionTable(16), options)
+                .search(SearchLimits.depth(depth));
+    }
+
+    @Test
+    @DisplayName("Sees Recapture Past Horizon")
+    public void seesRecapturePastHorizon() {
+        //At depth 1 the queen takes the knight unless the pawn's recapture is searched too
+        SearchResult result = new Search(Fen.toGame("4k3/8/4p3/3n4/8/8/3Q4/4K3 w - - 0 1")).search(SearchLimits.depth(1));
+        Assertions.assertNotEquals(new ChessMove(new ChessPosition(2, 4), new ChessPosition(5, 4), null), result.bestMove());
+        Assertions.assertTrue(result.score() > 0, "Score should favor white: " + result);
+    }
+
+    @Test
+    @DisplayName("No Move When Checkmated Or Stalemated")
+    public void noMoveWhenGameOver() {
+        SearchResult mated = new Search(Fen.toGame("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3"))
+                .search(SearchLimits.depth(3));
+        Assertions.assertNull(mated.bestMove());
+        Assertions.assertEquals(-Search.MATE, mated.score());
+
+        SearchResult stalemated = new Search(Fen.toGame("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1")).search(SearchLimits.depth(3));
+        Assertions.assertNull(stalemated.bestMove());
+        Assertions.assertEquals(0, stalemated.score());
+    }
+
+    @Test
+    @DisplayName("Principal Variation Is Playable")
+    public void principalVariationIsPlayable() throws InvalidMoveException {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        ChessGame game = Fen.toGame(fen);
+        long key = game.positionKey();
+        SearchResult result = new Search(game).search(SearchLimits.depth(4));
+
+        Assertions.assertEquals(key, game.positionKey(), "Search changed the game");
+        Assertions.assertEquals(4, result.depth());
+        Assertions.assertEquals(result.bestMove(), result.principalVariation().getFirst());
+        for (ChessMove move : result.principalVariation()) {
+            game.makeMove(move);
+        }
+    }
+
+    @Test
+    @DisplayName("Stops At Node Limit")
+    public void stopsAtNodeLimit() {
+        SearchResult result = new Search(Fen.toGame(Fen.START_POSITION)).search(SearchLimits.nodes(5000));
+        Assertions.assertTrue(result.nodes() <= 5000, "Searched " + result.nodes() + " nodes");
+        Assertions.assertNotNull(result.bestMove());
+    }
+
+    @Test
+    @DisplayName("Stops At Time Limit")
+    public void stopsAtTimeLimit() {
+        SearchResult result = new Search(Fen.toGame(Fen.START_POSITION)).search(SearchLimits.millis(200));
+        Assertions.assertTrue(result.millis() < 1000, "Searched for " + result.millis() + " ms");
+        Assertions.assertNotNull(result.bestMove());
+        Assertions.assertTrue(result.depth() >= 1);
+    }
+
+    @Test
+    @DisplayName("Plays Tablebase Mate")
+    public void playsTablebaseMate(@TempDir Path directory) throws IOException {
+        TablebaseGenerator.generate(directory);
+        try (Tablebase tablebase = Tablebase.open(directory)) {
+            ChessGame game = Fen.toGame("8/8/8/4k3/8/8/8/R3K3 w - - 0 1");
+            game.setTablebase(tablebase);
+            int plies = tablebase.probe(game).plies();
+            SearchResult result = new Search(game).search(SearchLimits.depth(20));
+            //Every move is scored from the tables, so the first iteration already finds the mate
+            Assertions.assertEquals(1, result.depth());
+            Assertions.assertEquals(Search.MATE - plies, result.score());
+            game.doMove(result.bestMove());
+            Assertions.assertEquals(new Tablebase.Result(Tablebase.Outcome.LOSS, plies - 1), tablebase.probe(game));
+        }
+    }
+
+    @Test
+    @DisplayName("Deep Tablebase Mates Stay Mates")
+    public void deepTablebaseMatesStayMates() {
+        for (int ply = 0; ply < Search.MAX_PLY; ply++) {
+            for (int plies = 0; plies < 64; plies++) {
+                Tablebase.Outcome outcome = ((plies & 1) == 1) ? Tablebase.Outcome.WIN : Tablebase.Outcome.LOSS;
+                int score = Search.tablebaseScore(new Tablebase.Result(outcome, plies), ply);
+                Assertions.assertTrue(Math.abs(score) > NnueEvaluator.MAX_SCORE, plies + " plies at ply " + ply);
+                Assertions.assertTrue(new SearchResult(null, score, 1, 0, 0, List.of()).isMate());
+                //Stored at this ply and read back at any other
+                int stored = Search.toTable(score, ply);
+                for (int other = 0; other < Search.MAX_PLY; other++) {
+                    int read = Search.fromTable(stored, other);
+                    Assertions.assertEquals(Integer.signum(score), Integer.signum(read));
+                    Assertions.assertTrue(Math.abs(read) >= Search.MATE - Search.MAX_PLY && Math.abs(read) <= Search.MATE,
+                            plies + " plies stored at ply " + ply + " read at " + other + " as " + read);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Avoids Fifty Move Draw")
+    public void avoidsFiftyMoveDraw() {
+        //Only a pawn move keeps the extra queen from being drawn away
+        SearchResult result = new Search(Fen.toGame("4k3/8/8/8/8/8/4P3/Q3K3 w - - 99 80")).search(SearchLimits.depth(3));
+        Assertions.assertEquals(new ChessPosition(2, 5), result.bestMove().getStartPosition());
+        Assertions.assertTrue(result.score() > 500, result.toString());
+    }
+
+    @Test
+    @DisplayName("Repeats When Losing")
+    public void repeatsWhenLosing() throws InvalidMoveException {
+        //A queen down, black can only reach a position the game has already been in
+        ChessGame game = Fen.toGame("7k/8/8/8/8/8/8/1Q4K1 b - - 0 1");
+        ChessMove repeat = new ChessMove(new ChessPosition(8, 8), new ChessPosition(8, 7), null);
+        game.makeMove(repeat);
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(1, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(8, 8), null));
+        game.makeMove(new ChessMove(new ChessPosition(1, 6), new ChessPosition(1, 7), null));
+        SearchResult result = new Search(game).search(SearchLimits.depth(4));
+        Assertions.assertEquals(repeat, result.bestMove());
+        Assertions.assertEquals(0, result.score());
+    }
+}
@@ -0,0 +1,73 @@
+package chess.engine;
+
+import chess.Fen;
+import chess.Move;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks entry packing and replacement in the transposition table, and that searching
+ * with a table finds the same answers as before in fewer nodes.
+ */
+public class TranspositionTableTests {
+
+    @Test
+    @DisplayName("Size Follows Megabytes")
+    public void sizeFollowsMegabytes() {
+        Assertions.assertEquals(1 << 16, new TranspositionTable(1).capacity());
+        Assertions.assertEquals(1 << 18, new TranspositionTable(5).capacity());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+
+    @Test
+    @DisplayName("Stored Entry Reads Back")
+    public void storedEntryReadsBack() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x1234_5678_9ABC_DEF0L;
+        int move = Move.of(12, 28, Move.DOUBLE_PUSH);
+        table.store(key, move, -31990, 7, TranspositionTable.LOWER);
+
+        long entry = table.probe(key);
+        Assertions.assertEquals(move, TranspositionTable.move(entry));
+        Assertions.assertEquals(-31990, TranspositionTable.score(entry));
+        Assertions.assertEquals(7, TranspositionTable.depth(entry));
+        Assertions.assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        Assertions.assertEquals(0, table.probe(key ^ (1L << 40)), "Another key in the same slot should miss");
+    }
+
+    @Test
+    @DisplayName("Deeper Entries Are Kept")
+    public void deeperEntriesAreKept() {
+        TranspositionTable table = new TranspositionTable(1);
+        long deep = 42;
+        long shallow = deep + ((long) table.capacity() << 3);
+        table.store(deep, Move.NONE, 10, 8, TranspositionTable.EXACT);
+        table.store(shallow, Move.NONE, 20, 3, TranspositionTable.EXACT);
+        Assertions.assertNotEquals(0, table.probe(deep));
+        Assertions.assertEquals(0, table.probe(shallow));
+
+        table.newSearch();
+        table.store(shallow, Move.NONE, 20, 3, TranspositionTable.EXACT);
+        Assertions.assertEquals(0, table.probe(deep), "Entries from an earlier search should be replaced");
+        Assertions.assertEquals(20, TranspositionTable.score(table.probe(shallow)));
+    }
+
+    @Test
+    @DisplayName("Search Reuses Table")
+    public void searchReusesTable() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        TranspositionTable table = new TranspositionTable(8);
+        Search search = new Search(Fen.toGame(fen), new MaterialEvaluator(), table);
+        SearchResult first = search.search(SearchLimits.depth(5));
+        SearchResult second = search.search(SearchLimits.depth(5));
+
+        Assertions.assertEquals(first.score(), second.score());
+        Assertions.assertTrue(second.nodes() < first.nodes(),
+                "Second search took " + second.nodes() + " nodes, first " + first.nodes());
+
+        SearchResult mate = new Search(Fen.toGame("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), new MaterialEvaluator(), table)
+                .search(SearchLimits.depth(5));
+        Assertions.assertEquals(Search.MATE - 1, mate.score());
+    }
+}